@@ -0,0 +1,481 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: ArrayAttackTree.java ---
+ * (Same augmented AVL-of-AVL layout as AttackTree, but every node lives
+ *  in parallel primitive arrays and is addressed by an int index)
+ * (Index 0 is a shared "null" sentinel; freed slots go on a free list)
+ * (With an OffHeapCardStore the pool keeps card handles instead of Card
+ *  references, so the deck itself holds no heap objects per card)
+ * ======================================================================
+ */
+public class ArrayAttackTree implements DeckIndex {
+
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // ---
+    // --- Outer pool: one slot per distinct A_cur ---
+    // ---
+    private int[] left, right, height;
+    private int[] aMax; // Max A_cur in this subtree
+    private int[] hMax; // Max H_cur in this subtree
+    private int[] hMin; // Min H_cur in this subtree
+    private int[] attackKey; // A_cur
+    private int[] inner; // Root slot of this node's health tree (inner pool)
+    private int outerNext = 1; // First never-used slot
+    private int outerFree = NIL; // Free list head, chained through left[]
+
+    // ---
+    // --- Inner pool: one slot per card (the "HealthTree" nodes) ---
+    // ---
+    private int[] hLeft, hRight, hHeight;
+    private int[] hMaxSub; // Max H_cur in this subtree
+    private int[] hMinSub; // Min H_cur in this subtree
+    private int[] hKey; // H_cur (copied so comparisons stay inside the arrays)
+    private long[] hTime; // entryTime (tie-breaker)
+    private Card[] hCard; // Heap mode
+    private int[] hHandle; // Off-heap mode: OffHeapCardStore handle
+    private int innerNext = 1;
+    private int innerFree = NIL; // Chained through hLeft[]
+
+    private int root = NIL;
+    private final OffHeapCardStore store; // null: cards stay on the heap
+
+    public ArrayAttackTree() {
+        this(INITIAL_CAPACITY, null);
+    }
+
+    public ArrayAttackTree(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    /**
+     * Off-heap mode: searches return fresh Cards loaded from the store, and
+     * insert() writes a card back to its record.
+     */
+    public ArrayAttackTree(OffHeapCardStore store) {
+        this(INITIAL_CAPACITY, store);
+    }
+
+    public ArrayAttackTree(int initialCapacity, OffHeapCardStore store) {
+        this.store = store;
+        int cap = Math.max(2, initialCapacity);
+
+        left = new int[cap]; right = new int[cap]; height = new int[cap];
+        aMax = new int[cap]; hMax = new int[cap]; hMin = new int[cap];
+        attackKey = new int[cap]; inner = new int[cap];
+
+        hLeft = new int[cap]; hRight = new int[cap]; hHeight = new int[cap];
+        hMaxSub = new int[cap]; hMinSub = new int[cap];
+        hKey = new int[cap]; hTime = new long[cap];
+        if (store == null) hCard = new Card[cap];
+        else hHandle = new int[cap];
+
+        // Sentinel values mirror the null-checks of AttackTree's getMaxH()/getMinH()
+        hMin[NIL] = Integer.MAX_VALUE;
+        hMinSub[NIL] = Integer.MAX_VALUE;
+    }
+
+    // --- Slot allocation ---
+
+    private int allocOuter() {
+        int n;
+        if (outerFree != NIL) {
+            n = outerFree;
+            outerFree = left[n];
+        } else {
+            if (outerNext == left.length) growOuter();
+            n = outerNext++;
+        }
+        left[n] = NIL;
+        right[n] = NIL;
+        return n;
+    }
+    private void freeOuter(int n) {
+        inner[n] = NIL;
+        left[n] = outerFree;
+        outerFree = n;
+    }
+    private void growOuter() {
+        int cap = left.length * 2;
+        left = grow(left, cap); right = grow(right, cap); height = grow(height, cap);
+        aMax = grow(aMax, cap); hMax = grow(hMax, cap); hMin = grow(hMin, cap);
+        attackKey = grow(attackKey, cap); inner = grow(inner, cap);
+    }
+
+    private int allocInner() {
+        int n;
+        if (innerFree != NIL) {
+            n = innerFree;
+            innerFree = hLeft[n];
+        } else {
+            if (innerNext == hLeft.length) growInner();
+            n = innerNext++;
+        }
+        hLeft[n] = NIL;
+        hRight[n] = NIL;
+        return n;
+    }
+    private void freeInner(int n) {
+        if (hCard != null) hCard[n] = null; // Do not keep discarded/stolen cards reachable
+        hLeft[n] = innerFree;
+        innerFree = n;
+    }
+    private void growInner() {
+        int cap = hLeft.length * 2;
+        hLeft = grow(hLeft, cap); hRight = grow(hRight, cap); hHeight = grow(hHeight, cap);
+        hMaxSub = grow(hMaxSub, cap); hMinSub = grow(hMinSub, cap);
+        hKey = grow(hKey, cap);
+        if (hHandle != null) hHandle = grow(hHandle, cap);
+        long[] t = new long[cap];
+        System.arraycopy(hTime, 0, t, 0, hTime.length);
+        hTime = t;
+        if (hCard != null) {
+            Card[] c = new Card[cap];
+            System.arraycopy(hCard, 0, c, 0, hCard.length);
+            hCard = c;
+        }
+    }
+
+    private static int[] grow(int[] a, int cap) {
+        int[] b = new int[cap];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+
+    // ---
+    // --- Inner (health) tree operations ---
+    // ---
+
+    // The card in inner slot n (NIL: null)
+    private Card cardAt(int n) {
+        if (n == NIL) return null;
+        return (store == null) ? hCard[n] : store.load(hHandle[n]);
+    }
+
+    /**
+     * The card left the game for good: frees its off-heap record.
+     */
+    @Override
+    public void release(Card card) {
+        if (store != null) store.free(card);
+    }
+
+    private int newInner(Card card) {
+        int n = allocInner();
+        if (store == null) hCard[n] = card;
+        else hHandle[n] = store.store(card);
+        hKey[n] = card.H_cur;
+        hTime[n] = card.entryTime;
+        hHeight[n] = 1;
+        hMaxSub[n] = card.H_cur;
+        hMinSub[n] = card.H_cur;
+        return n;
+    }
+
+    private void innerUpdate(int n) {
+        int l = hLeft[n], r = hRight[n];
+        hHeight[n] = 1 + Math.max(hHeight[l], hHeight[r]);
+        hMaxSub[n] = Math.max(hKey[n], Math.max(hMaxSub[l], hMaxSub[r]));
+        hMinSub[n] = Math.min(hKey[n], Math.min(hMinSub[l], hMinSub[r]));
+    }
+
+    private int innerCompare(int health, long time, int n) {
+        if (health < hKey[n]) return -1;
+        if (health > hKey[n]) return 1;
+        return Long.compare(time, hTime[n]);
+    }
+
+    private int innerInsert(int n, Card card) {
+        if (n == NIL) return newInner(card);
+        int cmp = innerCompare(card.H_cur, card.entryTime, n);
+        // The recursive call may grow (reallocate) the pool, so assign through a local
+        int child;
+        if (cmp < 0) { child = innerInsert(hLeft[n], card); hLeft[n] = child; }
+        else if (cmp > 0) { child = innerInsert(hRight[n], card); hRight[n] = child; }
+        else return n; // Duplicate
+        innerUpdate(n);
+        return innerRebalance(n);
+    }
+
+    private int innerDelete(int n, int health, long time) {
+        if (n == NIL) return NIL;
+        int cmp = innerCompare(health, time, n);
+        if (cmp < 0) hLeft[n] = innerDelete(hLeft[n], health, time);
+        else if (cmp > 0) hRight[n] = innerDelete(hRight[n], health, time);
+        else {
+            if (hLeft[n] == NIL || hRight[n] == NIL) {
+                int child = (hLeft[n] == NIL) ? hRight[n] : hLeft[n];
+                freeInner(n);
+                return child;
+            }
+            int s = hRight[n];
+            while (hLeft[s] != NIL) s = hLeft[s];
+            if (store == null) hCard[n] = hCard[s];
+            else hHandle[n] = hHandle[s];
+            hKey[n] = hKey[s];
+            hTime[n] = hTime[s];
+            hRight[n] = innerDelete(hRight[n], hKey[s], hTime[s]);
+        }
+        innerUpdate(n);
+        return innerRebalance(n);
+    }
+
+    private int innerBalance(int n) { return hHeight[hLeft[n]] - hHeight[hRight[n]]; }
+
+    private int innerRebalance(int n) {
+        int balance = innerBalance(n);
+        if (balance > 1) {
+            if (innerBalance(hLeft[n]) < 0) hLeft[n] = innerLeftRotate(hLeft[n]);
+            return innerRightRotate(n);
+        }
+        if (balance < -1) {
+            if (innerBalance(hRight[n]) > 0) hRight[n] = innerRightRotate(hRight[n]);
+            return innerLeftRotate(n);
+        }
+        return n;
+    }
+    private int innerRightRotate(int y) {
+        int x = hLeft[y];
+        hLeft[y] = hRight[x];
+        hRight[x] = y;
+        innerUpdate(y); innerUpdate(x);
+        return x;
+    }
+    private int innerLeftRotate(int x) {
+        int y = hRight[x];
+        hRight[x] = hLeft[y];
+        hLeft[y] = x;
+        innerUpdate(x); innerUpdate(y);
+        return y;
+    }
+
+    // Inner searches return the slot of the card (NIL: none); cardAt() turns it into a Card
+
+    private int innerFindMinHealth(int n, int hpLimit) { // min H_cur > hpLimit
+        if (n == NIL) return NIL;
+        if (hMaxSub[n] <= hpLimit) return NIL; // Pruning
+        if (hKey[n] <= hpLimit) return innerFindMinHealth(hRight[n], hpLimit);
+        int fromLeft = innerFindMinHealth(hLeft[n], hpLimit);
+        return (fromLeft != NIL) ? fromLeft : n;
+    }
+
+    private int innerFindMinHealthMax(int n, int hpLimit) { // min H_cur <= hpLimit
+        if (n == NIL) return NIL;
+        if (hMinSub[n] > hpLimit) return NIL; // Pruning
+        if (hKey[n] > hpLimit) return innerFindMinHealthMax(hLeft[n], hpLimit);
+        int fromLeft = innerFindMinHealthMax(hLeft[n], hpLimit);
+        return (fromLeft != NIL) ? fromLeft : n;
+    }
+
+
+    // ---
+    // --- Outer (attack) tree operations ---
+    // ---
+
+    public int getDeckMaxAttack() { return aMax[root]; }
+    public int getDeckMaxHealth() { return hMax[root]; }
+
+    private void update(int n) {
+        int l = left[n], r = right[n], h = inner[n];
+        height[n] = 1 + Math.max(height[l], height[r]);
+        aMax[n] = Math.max(attackKey[n], Math.max(aMax[l], aMax[r]));
+        hMax[n] = Math.max(hMaxSub[h], Math.max(hMax[l], hMax[r]));
+        hMin[n] = Math.min(hMinSub[h], Math.min(hMin[l], hMin[r]));
+    }
+
+    public void insert(Card card) {
+        root = insert(root, card);
+    }
+    private int insert(int n, Card card) {
+        if (n == NIL) {
+            n = allocOuter();
+            attackKey[n] = card.A_cur;
+            inner[n] = newInner(card);
+            update(n);
+            return n;
+        }
+        int a = card.A_cur;
+        // The recursive call may grow (reallocate) the pools, so assign through a local
+        int child;
+        if (a < attackKey[n]) {
+            child = insert(left[n], card);
+            left[n] = child;
+        } else if (a > attackKey[n]) {
+            child = insert(right[n], card);
+            right[n] = child;
+        } else {
+            child = innerInsert(inner[n], card);
+            inner[n] = child;
+            update(n); // Must update H_max/H_min even if no outer rebalance
+            return n;
+        }
+        update(n);
+        return rebalance(n);
+    }
+
+    public void delete(Card card) {
+        root = delete(root, card);
+    }
+    private int delete(int n, Card card) {
+        if (n == NIL) return NIL;
+        int a = card.A_cur;
+        if (a < attackKey[n]) {
+            left[n] = delete(left[n], card);
+        } else if (a > attackKey[n]) {
+            right[n] = delete(right[n], card);
+        } else {
+            inner[n] = innerDelete(inner[n], card.H_cur, card.entryTime);
+            if (inner[n] == NIL) return unlinkOuter(n);
+        }
+        update(n);
+        return rebalance(n);
+    }
+
+    // Removes outer node n (whose health tree is already empty) from its own subtree
+    private int unlinkOuter(int n) {
+        if (left[n] == NIL || right[n] == NIL) {
+            int child = (left[n] == NIL) ? right[n] : left[n];
+            freeOuter(n);
+            return child;
+        }
+        int s = right[n];
+        while (left[s] != NIL) s = left[s];
+        attackKey[n] = attackKey[s];
+        inner[n] = inner[s]; // n now owns the successor's health tree
+        right[n] = removeMinOuter(right[n]);
+        update(n);
+        return rebalance(n);
+    }
+    private int removeMinOuter(int n) {
+        if (left[n] == NIL) {
+            int child = right[n];
+            freeOuter(n);
+            return child;
+        }
+        left[n] = removeMinOuter(left[n]);
+        update(n);
+        return rebalance(n);
+    }
+
+    private int balanceOf(int n) { return height[left[n]] - height[right[n]]; }
+
+    private int rebalance(int n) {
+        int balance = balanceOf(n);
+        if (balance > 1) {
+            if (balanceOf(left[n]) < 0) left[n] = leftRotate(left[n]);
+            return rightRotate(n);
+        }
+        if (balance < -1) {
+            if (balanceOf(right[n]) > 0) right[n] = rightRotate(right[n]);
+            return leftRotate(n);
+        }
+        return n;
+    }
+    private int rightRotate(int y) {
+        int x = left[y];
+        left[y] = right[x];
+        right[x] = y;
+        update(y); update(x);
+        return x;
+    }
+    private int leftRotate(int x) {
+        int y = right[x];
+        right[x] = left[y];
+        left[y] = x;
+        update(x); update(y);
+        return y;
+    }
+
+
+    // ---
+    // --- Search Methods (same pruning as AttackTree) ---
+    // ---
+
+    // P1: min A_cur >= strHp, min H_cur > strAtt
+    public Card findBestP1(int strAtt, int strHp) {
+        return cardAt(findBestP1(root, strAtt, strHp));
+    }
+    private int findBestP1(int n, int strAtt, int strHp) {
+        if (n == NIL) return NIL;
+        if (aMax[n] < strHp || hMax[n] <= strAtt) return NIL;
+
+        if (attackKey[n] < strHp) return findBestP1(right[n], strAtt, strHp);
+
+        int found = findBestP1(left[n], strAtt, strHp); // Check left first (min A_cur)
+        if (found != NIL) return found;
+        if (hMaxSub[inner[n]] > strAtt) {
+            found = innerFindMinHealth(inner[n], strAtt);
+            if (found != NIL) return found;
+        }
+        return findBestP1(right[n], strAtt, strHp);
+    }
+
+    // P2: max A_cur < strHp, min H_cur > strAtt
+    public Card findBestP2_Reverse(int strAtt, int strHp) {
+        return cardAt(findBestP2_Reverse(root, strAtt, strHp));
+    }
+    private int findBestP2_Reverse(int n, int strAtt, int strHp) {
+        if (n == NIL) return NIL;
+        if (hMax[n] <= strAtt) return NIL;
+
+        if (attackKey[n] >= strHp) return findBestP2_Reverse(left[n], strAtt, strHp);
+
+        int found = findBestP2_Reverse(right[n], strAtt, strHp); // Check right first (max A_cur)
+        if (found != NIL) return found;
+        if (hMaxSub[inner[n]] > strAtt) {
+            found = innerFindMinHealth(inner[n], strAtt);
+            if (found != NIL) return found;
+        }
+        return findBestP2_Reverse(left[n], strAtt, strHp);
+    }
+
+    // P3: min A_cur >= strHp, min H_cur <= strAtt
+    public Card findBestP3(int strAtt, int strHp) {
+        return cardAt(findBestP3(root, strAtt, strHp));
+    }
+    private int findBestP3(int n, int strAtt, int strHp) {
+        if (n == NIL) return NIL;
+        if (aMax[n] < strHp || hMin[n] > strAtt) return NIL;
+
+        if (attackKey[n] < strHp) return findBestP3(right[n], strAtt, strHp);
+
+        int found = findBestP3(left[n], strAtt, strHp);
+        if (found != NIL) return found;
+        if (hMinSub[inner[n]] <= strAtt) {
+            found = innerFindMinHealthMax(inner[n], strAtt);
+            if (found != NIL) return found;
+        }
+        return findBestP3(right[n], strAtt, strHp);
+    }
+
+    // P4: max A_cur, min H_cur
+    public Card findBestP4_Reverse() {
+        if (root == NIL) return null;
+        int n = root;
+        while (right[n] != NIL) n = right[n];
+        int h = inner[n];
+        while (hLeft[h] != NIL) h = hLeft[h];
+        return cardAt(h);
+    }
+
+    // Steal: min A_cur > attLimit, min H_cur > hpLimit
+    public Card findForSteal(int attLimit, int hpLimit) {
+        return cardAt(findForSteal(root, attLimit, hpLimit));
+    }
+    private int findForSteal(int n, int attLimit, int hpLimit) {
+        if (n == NIL) return NIL;
+        if (aMax[n] <= attLimit || hMax[n] <= hpLimit) return NIL;
+
+        if (attackKey[n] <= attLimit) return findForSteal(right[n], attLimit, hpLimit);
+
+        int found = findForSteal(left[n], attLimit, hpLimit);
+        if (found != NIL) return found;
+        if (hMaxSub[inner[n]] > hpLimit) {
+            found = innerFindMinHealth(inner[n], hpLimit);
+            if (found != NIL) return found;
+        }
+        return findForSteal(right[n], attLimit, hpLimit);
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: AsyncChannelWriter.java ---
+ * (Background output stage for ResultWriter: the engine thread fills direct
+ *  ByteBuffers and hands them to one writer thread through a bounded
+ *  single-producer / single-consumer ring, so engine work and disk writes overlap)
+ * (Buffers are written strictly in the order they were published)
+ * ======================================================================
+ *
+ * The ring is a fixed array of buffers and two sequence numbers: buffer s
+ * lives in slots[s % depth]. The engine fills slot "published" and may move
+ * on once the writer has caught up to within depth - 1 buffers.
+ */
+public class AsyncChannelWriter implements Closeable {
+
+    private static final long PARK_NANOS = 10_000_000; // Safety re-check only: unpark() permits make waking exact
+
+    private final FileChannel channel;
+    private final ByteBuffer[] slots;
+    private final Thread writerThread;
+    private volatile Thread producerThread;
+
+    private volatile long published = 0; // Buffers handed over (advanced by the engine thread only)
+    private volatile long written = 0; // Buffers written out (advanced by the writer thread only)
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+
+    /**
+     * @param queueDepth buffers in the ring (at least 2: one filling, one writing)
+     */
+    public AsyncChannelWriter(FileChannel channel, int bufferSize, int queueDepth) {
+        this.channel = channel;
+        this.slots = new ByteBuffer[Math.max(2, queueDepth)];
+        for (int i = 0; i < slots.length; i++) slots[i] = ByteBuffer.allocateDirect(bufferSize);
+        this.writerThread = new Thread(this::drain, "result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // --- The buffer the engine thread fills next ---
+    public ByteBuffer current() {
+        return slots[(int) (published % slots.length)];
+    }
+
+    /**
+     * Hands the current buffer to the writer thread and returns the next
+     * empty one, waiting while every other slot is still queued.
+     */
+    public ByteBuffer publish() throws IOException {
+        checkFailure();
+        producerThread = Thread.currentThread();
+        current().flip();
+        published++; // Volatile write: the buffer's bytes are visible to the writer from here on
+        LockSupport.unpark(writerThread);
+        while (published - written >= slots.length) {
+            checkFailure();
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        return current();
+    }
+
+    // --- Writer thread: writes published buffers in sequence until closed ---
+    private void drain() {
+        try {
+            while (true) {
+                long w = written;
+                if (w == published) {
+                    if (closed && w == published) return; // closed is set after the last publish
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                    continue;
+                }
+                ByteBuffer buffer = slots[(int) (w % slots.length)];
+                while (buffer.hasRemaining()) channel.write(buffer);
+                buffer.clear();
+                written = w + 1;
+                Thread producer = producerThread;
+                if (producer != null) LockSupport.unpark(producer);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) throw e;
+    }
+
+    /**
+     * Publishes the partly filled buffer and waits until everything is
+     * written (the caller closes the channel afterwards).
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        if (current().position() > 0) {
+            current().flip();
+            published++;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        checkFailure();
+    }
+}
@@ -5,20 +5,97 @@
  * (Each node stores MAX A, MAX H, AND MIN H of its entire subtree)
  * ======================================================================
  */
-public class AttackTree {
+public class AttackTree implements DeckIndex {
 
     // --- Helper class for passing search results by reference ---
     private static class SearchResult {
         Card bestCard = null;
     }
 
-    // --- Reusable search object ---
+    // --- Reusable search object (outer searches and fused removals) ---
     private final SearchResult reusableSearchResult = new SearchResult();
 
+    // --- Nodes touched by searches and deletions (outer AttackNodes / inner HealthTree nodes) ---
+    private long nodesVisited = 0;
+    private long innerProbes = 0;
+    public long getNodesVisited() { return nodesVisited + innerProbes; }
+    public long getInnerProbes() { return innerProbes; }
+
+    // --- Rotations in both tree levels (counted only with EngineStats.ENABLED) ---
+    private long rotations = 0;
+    public long getRotations() { return rotations; }
+
+    // --- Inner containers hold up to this many cards as sorted arrays (0: always a tree) ---
+    public static final int DEFAULT_SMALL_SET_THRESHOLD = 16;
+    private final int smallSetThreshold;
+
+    public AttackTree() {
+        this(DEFAULT_SMALL_SET_THRESHOLD);
+    }
+
+    public AttackTree(int smallSetThreshold) {
+        this.smallSetThreshold = Math.max(0, smallSetThreshold);
+        this.demoted = new Card[Math.max(1, this.smallSetThreshold / 2)];
+    }
+
+    // ---
+    // --- Node Recycling ---
+    // --- Unlinked nodes of both levels go on free lists (chained through right)
+    // --- and are reused by later inserts, so a steady-state battle/revive loop
+    // --- does not allocate. A free AttackNode keeps its empty HealthTree, and a
+    // --- promoted HealthTree keeps its small-mode arrays for the next demotion.
+    // ---
+    private AttackNode freeAttackNodes;
+    private HealthTree.Node freeHealthNodes;
+    private final Card[] demoted; // Scratch array of maybeDemote()
+
+    // ---
+    // --- Explicit Paths ---
+    // --- Insert, delete and the inner removals run as loops over these
+    // --- root-to-node stacks instead of recursing (the outer in-order searches
+    // --- stay recursive: as loops they ran slower). An AVL tree of height h has
+    // --- at least fib(h + 2) - 1 nodes, so 64 levels cover any tree in memory.
+    // ---
+    private static final int MAX_HEIGHT = 64;
+    private final AttackNode[] path = new AttackNode[MAX_HEIGHT];
+    private final AttackNode[] spine = new AttackNode[MAX_HEIGHT]; // Successor walk of removeOuterNode()
+    private final HealthTree.Node[] innerPath = new HealthTree.Node[MAX_HEIGHT];
+    private final HealthTree.Node[] innerSpine = new HealthTree.Node[MAX_HEIGHT];
+
+    private void recycle(AttackNode n) {
+        n.left = null;
+        n.right = freeAttackNodes;
+        freeAttackNodes = n;
+    }
+    private void recycle(HealthTree.Node n) {
+        n.data = null;
+        n.left = null;
+        n.right = freeHealthNodes;
+        freeHealthNodes = n;
+    }
+
     // ---
     // --- Inner "HealthTree" class (Also Fully Augmented) ---
+    // --- Small mode: most A_cur values hold a handful of cards, so the container
+    // --- starts as a sorted long[] of packed (H_cur, entryTime) keys with a parallel
+    // --- Card[]. Past smallSetThreshold it is promoted to the AVL tree below, and it
+    // --- is demoted again once the tree shrinks to half the threshold.
     // ---
-    private class HealthTree {
+    private static final int SMALL_SET_INITIAL_CAPACITY = 2;
+    private static final long MAX_PACKED_ENTRY_TIME = (1L << 33) - 1;
+
+    // (H_cur, entryTime) in one signed-comparable long: 31 bits of H_cur over 33 bits of entryTime
+    private static long packKey(Card card) {
+        return (((long) card.H_cur << 33) | card.entryTime) ^ Long.MIN_VALUE;
+    }
+    private static int unpackHealth(long key) {
+        return (int) ((key ^ Long.MIN_VALUE) >>> 33);
+    }
+    private static boolean canPack(Card card) {
+        return card.H_cur >= 0 && card.entryTime >= 0 && card.entryTime <= MAX_PACKED_ENTRY_TIME;
+    }
+
+    class HealthTree { // Package-private: BitmapAttackTree keeps one per attack value
         private class Node {
             Card data;
             Node left, right;
@@ -27,6 +104,9 @@ public class AttackTree {
             int H_min_subtree; // Min H_cur in this subtree
 
             Node(Card data) {
+                set(data);
+            }
+            void set(Card data) {
                 this.data = data;
                 this.height = 1;
                 this.size = 1;
@@ -36,9 +116,193 @@ public class AttackTree {
         }
         private Node root;
 
-        public HealthTree() {}
-        public boolean isEmpty() { return root == null; }
-        public int size() { return (root == null) ? 0 : root.size; }
+        // --- Small mode (keys != null): entries [0, count) sorted by key ---
+        private long[] keys;
+        private Card[] cards;
+        private int count;
+        private long[] spareKeys; // Small-mode arrays kept while in tree mode
+        private Card[] spareCards;
+
+        private Node newNode(Card data) {
+            Node n = freeHealthNodes;
+            if (n == null) return new Node(data);
+            freeHealthNodes = n.right;
+            n.right = null;
+            n.set(data);
+            return n;
+        }
+        private void recycleAll(Node n) {
+            if (n == null) return;
+            recycleAll(n.left);
+            Node right = n.right;
+            recycle(n);
+            recycleAll(right);
+        }
+
+        public HealthTree() {
+            if (smallSetThreshold > 0) {
+                keys = new long[SMALL_SET_INITIAL_CAPACITY];
+                cards = new Card[SMALL_SET_INITIAL_CAPACITY];
+            }
+        }
+        public boolean isEmpty() { return (keys != null) ? count == 0 : root == null; }
+
+        // Replaces the contents with the sorted (H_cur, entryTime) cards a[lo, hi)
+        public void build(Card[] a, int lo, int hi) {
+            int n = hi - lo;
+            boolean small = n <= smallSetThreshold;
+            for (int i = lo; small && i < hi; i++) small = canPack(a[i]);
+            if (small) {
+                setSmall(a, lo, n);
+            } else {
+                keepSpareArrays();
+                root = buildBalanced(a, lo, hi);
+            }
+        }
+
+        // Switches to small mode holding the sorted cards a[lo, lo + n)
+        private void setSmall(Card[] a, int lo, int n) {
+            int capacity = Math.max(SMALL_SET_INITIAL_CAPACITY, n);
+            if (keys == null && spareKeys != null && spareKeys.length >= capacity) {
+                keys = spareKeys;
+                cards = spareCards;
+            } else if (keys == null || keys.length < capacity) {
+                keys = new long[capacity];
+                cards = new Card[capacity];
+            }
+            spareKeys = null;
+            spareCards = null;
+            for (int i = 0; i < n; i++) {
+                cards[i] = a[lo + i];
+                keys[i] = packKey(a[lo + i]);
+            }
+            for (int i = n; i < count; i++) cards[i] = null; // Leftovers of a small set being replaced
+            count = n;
+            root = null;
+        }
+
+        // Tree mode from here on (the card cannot be packed or the set is full)
+        private void promote() {
+            root = buildBalanced(cards, 0, count);
+            keepSpareArrays();
+        }
+        private void keepSpareArrays() {
+            if (keys != null) {
+                for (int i = 0; i < count; i++) cards[i] = null;
+                spareKeys = keys;
+                spareCards = cards;
+            }
+            keys = null;
+            cards = null;
+            count = 0;
+        }
+
+        // Back to small mode once a tree has shrunk to half the threshold
+        private void maybeDemote() {
+            if (smallSetThreshold == 0) return;
+            if (root == null) { // Emptied: ready for reuse as a small set
+                setSmall(demoted, 0, 0);
+                return;
+            }
+            int n = root.size;
+            if (n > smallSetThreshold / 2) return;
+            fill(root, demoted, 0);
+            boolean packable = true;
+            for (int i = 0; i < n && packable; i++) packable = canPack(demoted[i]);
+            if (packable) {
+                recycleAll(root);
+                setSmall(demoted, 0, n);
+            }
+            for (int i = 0; i < n; i++) demoted[i] = null;
+        }
+        private int fill(Node n, Card[] out, int i) {
+            if (n == null) return i;
+            i = fill(n.left, out, i);
+            out[i++] = n.data;
+            return fill(n.right, out, i);
+        }
+
+        // --- Small-mode helpers ---
+        private int indexOf(long key) { // Binary search, -1 if absent
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                innerProbes++;
+                if (keys[mid] < key) lo = mid + 1;
+                else if (keys[mid] > key) hi = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+        private int firstAbove(int hpLimit) { // First index with H_cur > hpLimit (count if none)
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                innerProbes++;
+                if (unpackHealth(keys[mid]) <= hpLimit) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+        private void insertSmall(Card card) {
+            long key = packKey(card);
+            if (count == keys.length) {
+                int capacity = Math.min(smallSetThreshold, keys.length * 2);
+                long[] biggerKeys = new long[capacity];
+                Card[] biggerCards = new Card[capacity];
+                System.arraycopy(keys, 0, biggerKeys, 0, count);
+                System.arraycopy(cards, 0, biggerCards, 0, count);
+                keys = biggerKeys;
+                cards = biggerCards;
+            }
+            int i = count;
+            while (i > 0 && keys[i - 1] > key) { // Shift the larger keys right
+                keys[i] = keys[i - 1];
+                cards[i] = cards[i - 1];
+                i--;
+            }
+            if (i > 0 && keys[i - 1] == key) { // Duplicate: undo the shift
+                System.arraycopy(keys, i + 1, keys, i, count - i);
+                System.arraycopy(cards, i + 1, cards, i, count - i);
+                return;
+            }
+            keys[i] = key;
+            cards[i] = card;
+            count++;
+        }
+        private Card removeAt(int i) {
+            Card card = cards[i];
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(cards, i + 1, cards, i, count - i - 1);
+            cards[--count] = null;
+            return card;
+        }
+        private Node buildBalanced(Card[] a, int lo, int hi) {
+            if (lo >= hi) return null;
+            int mid = (lo + hi) >>> 1;
+            Node n = newNode(a[mid]);
+            n.left = buildBalanced(a, lo, mid);
+            n.right = buildBalanced(a, mid + 1, hi);
+            update(n);
+            return n;
+        }
+
+        // Appends the cards in (H_cur, entryTime) order
+        public void collect(Card[] out) {
+            if (keys != null) {
+                System.arraycopy(cards, 0, out, collected, count);
+                collected += count;
+                return;
+            }
+            collect(root, out);
+        }
+        private void collect(Node n, Card[] out) {
+            if (n == null) return;
+            collect(n.left, out);
+            out[collected++] = n.data;
+            collect(n.right, out);
+        }
+        public int size() { return (keys != null) ? count : (root == null) ? 0 : root.size; }
         private int getHeight(Node n) { return (n == null) ? 0 : n.height; }
         private int getSize(Node n) { return (n == null) ? 0 : n.size; }
 
@@ -66,65 +330,117 @@ public class AttackTree {
 
         // --- Public getters for augmented data ---
         public int getSubtreeMaxHealth() {
+            if (keys != null) return (count == 0) ? 0 : unpackHealth(keys[count - 1]);
             return (root == null) ? 0 : root.H_max_subtree;
         }
         public int getSubtreeMinHealth() {
+            if (keys != null) return (count == 0) ? Integer.MAX_VALUE : unpackHealth(keys[0]);
             return (root == null) ? Integer.MAX_VALUE : root.H_min_subtree;
         }
 
         public Card findMin() {
+            if (keys != null) {
+                innerProbes++;
+                return (count == 0) ? null : cards[0];
+            }
             if (root == null) return null;
             Node n = root;
-            while (n.left != null) n = n.left;
+            innerProbes++;
+            while (n.left != null) { n = n.left; innerProbes++; }
             return n.data;
         }
 
-        public void insert(Card card) { root = insert(root, card); }
-        private Node insert(Node n, Card card) {
-            if (n == null) return new Node(card);
-            int cmp;
-            if (card.H_cur < n.data.H_cur) cmp = -1;
-            else if (card.H_cur > n.data.H_cur) cmp = 1;
-            else cmp = Long.compare(card.entryTime, n.data.entryTime);
-
-            if (cmp < 0) n.left = insert(n.left, card);
-            else if (cmp > 0) n.right = insert(n.right, card);
-            else return n; // Duplicate
-            update(n); // This now updates height, size, H_max, AND H_min
-            return rebalance(n);
+        public void insert(Card card) {
+            if (keys != null) {
+                if (count < smallSetThreshold && canPack(card)) {
+                    insertSmall(card);
+                    return;
+                }
+                promote();
+            }
+            int d = 0;
+            Node n = root;
+            while (n != null) {
+                int cmp = compare(card, n.data);
+                if (cmp == 0) return; // Duplicate
+                innerPath[d++] = n;
+                n = (cmp < 0) ? n.left : n.right;
+            }
+            root = relink(d, newNode(card), card);
         }
 
-        public void delete(Card card) {
-            root = delete(root, card);
+        // Returns false if the card is not in this tree
+        public boolean delete(Card card) {
+            if (keys != null) {
+                int i = canPack(card) ? indexOf(packKey(card)) : -1;
+                if (i < 0) return false;
+                removeAt(i);
+                return true;
+            }
+            int d = 0;
+            Node n = root;
+            while (n != null) {
+                innerProbes++;
+                int cmp = compare(card, n.data);
+                if (cmp == 0) break;
+                innerPath[d++] = n;
+                n = (cmp < 0) ? n.left : n.right;
+            }
+            if (n == null) return false;
+            root = relink(d, unlink(n), card);
+            maybeDemote();
+            return true;
         }
 
-        private Node delete(Node n, Card card) {
-            if (n == null) return null;
+        // (H_cur, entryTime) order of the tree nodes
+        private int compare(Card a, Card b) {
+            if (a.H_cur != b.H_cur) return (a.H_cur < b.H_cur) ? -1 : 1;
+            return Long.compare(a.entryTime, b.entryTime);
+        }
 
-            int cmp;
-            if (card.H_cur < n.data.H_cur) cmp = -1;
-            else if (card.H_cur > n.data.H_cur) cmp = 1;
-            else cmp = Long.compare(card.entryTime, n.data.entryTime);
+        // Hangs sub where the node at depth top of innerPath was (the side is found
+        // from key, a card of that subtree's range), then updates and rebalances
+        // the ancestors bottom-up. Returns the new root.
+        private Node relink(int top, Node sub, Card key) {
+            for (int i = top - 1; i >= 0; i--) {
+                Node parent = innerPath[i];
+                if (compare(key, parent.data) < 0) parent.left = sub;
+                else parent.right = sub;
+                update(parent);
+                sub = rebalance(parent);
+            }
+            return sub;
+        }
 
-            if (cmp < 0) n.left = delete(n.left, card);
-            else if (cmp > 0) n.right = delete(n.right, card);
-            else {
-                if (n.left == null) return n.right;
-                else if (n.right == null) return n.left;
-                else {
-                    Node successor = findMinNode(n.right);
-                    n.data = successor.data;
-                    n.right = delete(n.right, successor.data);
-                }
+        // Removes node n itself, returning the new root of its subtree
+        private Node unlink(Node n) {
+            if (n.left == null || n.right == null) {
+                Node child = (n.left == null) ? n.right : n.left;
+                recycle(n);
+                return child;
+            }
+            // Two children: n takes its successor's card, and the successor's node goes
+            int s = 0;
+            Node m = n.right;
+            innerProbes++;
+            while (m.left != null) {
+                innerSpine[s++] = m;
+                m = m.left;
+                innerProbes++;
+            }
+            n.data = m.data;
+            Node sub = m.right;
+            recycle(m);
+            for (int i = s - 1; i >= 0; i--) {
+                Node parent = innerSpine[i];
+                parent.left = sub;
+                update(parent);
+                sub = rebalance(parent);
             }
-            if (n == null) return null;
-            update(n); // This now updates height, size, H_max, AND H_min
+            n.right = sub;
+            update(n);
             return rebalance(n);
         }
-        private Node findMinNode(Node n) {
-            while (n.left != null) n = n.left;
-            return n;
-        }
 
         // Rebalance logic is unchanged, but it calls the new augmented update()
         private Node rebalance(Node n) {
@@ -142,12 +458,14 @@ public class AttackTree {
         private int getBalance(Node n) { return (n == null) ? 0 : getHeight(n.left) - getHeight(n.right); }
 
         private Node rightRotate(Node y) {
+            if (EngineStats.ENABLED) rotations++;
             Node x = y.left; Node T2 = x.right;
             x.right = y; y.left = T2;
             update(y); update(x); // These updates propagate H_max/H_min
             return x;
         }
         private Node leftRotate(Node x) {
+            if (EngineStats.ENABLED) rotations++;
             Node y = x.right; Node T2 = y.left;
             y.left = x; x.right = T2;
             update(x); update(y); // These updates propagate H_max/H_min
@@ -156,36 +474,164 @@ public class AttackTree {
 
 
 
+        // --- Range steal: removes every card with H_cur > hpLimit, appending them
+        // --- to the stolen buffer in (H_cur, entryTime) order ---
+        public void removeAbove(int hpLimit) {
+            if (keys != null) {
+                int from = firstAbove(hpLimit);
+                for (int i = from; i < count; i++) {
+                    appendStolen(cards[i]);
+                    cards[i] = null;
+                }
+                count = from;
+                return;
+            }
+            root = removeAbove(root, hpLimit);
+            maybeDemote();
+        }
+        private Node removeAbove(Node n, int hpLimit) {
+            if (n == null || n.H_max_subtree <= hpLimit) return n;
+            innerProbes++;
+            if (n.data.H_cur <= hpLimit) {
+                Node right = removeAbove(n.right, hpLimit);
+                return join(n.left, n, right);
+            }
+            Node left = removeAbove(n.left, hpLimit); // n and its right side all go
+            Node right = n.right;
+            appendStolen(n.data);
+            recycle(n);
+            appendAll(right);
+            return left;
+        }
+        private void appendAll(Node n) { // Also recycles the nodes
+            if (n == null) return;
+            appendAll(n.left);
+            Node right = n.right;
+            appendStolen(n.data);
+            recycle(n);
+            appendAll(right);
+        }
+
+        // AVL join: keys of l < m < keys of r, heights may differ by any amount
+        private Node join(Node l, Node m, Node r) {
+            int hl = getHeight(l), hr = getHeight(r);
+            if (hl > hr + 1) {
+                l.right = join(l.right, m, r);
+                update(l);
+                return rebalance(l);
+            }
+            if (hr > hl + 1) {
+                r.left = join(l, m, r.left);
+                update(r);
+                return rebalance(r);
+            }
+            m.left = l;
+            m.right = r;
+            update(m);
+            return m;
+        }
+
         public Card findMinHealth(int hpLimit) { // min H_cur > hpLimit
-            return findMinHealth(root, hpLimit);
+            if (keys != null) {
+                int i = firstAbove(hpLimit);
+                return (i < count) ? cards[i] : null;
+            }
+            Card best = null;
+            Node n = root;
+            while (n != null) {
+                innerProbes++;
+                if (n.H_max_subtree <= hpLimit) break; // Pruning
+                if (n.data.H_cur <= hpLimit) {
+                    n = n.right;
+                } else {
+                    best = n.data; // Anything better is further left
+                    n = n.left;
+                }
+            }
+            return best;
         }
-        private Card findMinHealth(Node n, int hpLimit) {
-            if (n == null) return null;
-            if (n.H_max_subtree <= hpLimit) return null; // Pruning
 
-            if (n.data.H_cur <= hpLimit) {
-                return findMinHealth(n.right, hpLimit);
-            } else {
-                Card fromLeft = findMinHealth(n.left, hpLimit);
-                return (fromLeft != null) ? fromLeft : n.data;
+        public int countAbove(int hpLimit) { // Cards with H_cur > hpLimit (rank query)
+            if (keys != null) return count - firstAbove(hpLimit);
+            int c = 0;
+            Node n = root;
+            while (n != null) {
+                innerProbes++;
+                if (n.data.H_cur > hpLimit) {
+                    c += 1 + getSize(n.right);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
             }
+            return c;
         }
 
         public Card findMinHealthMax(int hpLimit) { // min H_cur <= hpLimit
-            return findMinHealthMax(root, hpLimit);
+            if (keys != null) {
+                innerProbes++;
+                return (count > 0 && unpackHealth(keys[0]) <= hpLimit) ? cards[0] : null;
+            }
+            Card best = null;
+            Node n = root;
+            while (n != null) {
+                innerProbes++;
+                // If the *minimum* health in this subtree is already > hpLimit,
+                // then no node can satisfy H_cur <= hpLimit. Prune this branch.
+                if (n.H_min_subtree > hpLimit) break;
+                if (n.data.H_cur <= hpLimit) best = n.data;
+                n = n.left;
+            }
+            return best;
         }
-        private Card findMinHealthMax(Node n, int hpLimit) {
-            if (n == null) return null;
-            // If the *minimum* health in this subtree is already > hpLimit,
-            // then no node can satisfy H_cur <= hpLimit. Prune this branch.
-            if (n.H_min_subtree > hpLimit) return null;
 
-            if (n.data.H_cur > hpLimit) {
-                return findMinHealthMax(n.left, hpLimit);
-            } else {
-                Card fromLeft = findMinHealthMax(n.left, hpLimit);
-                return (fromLeft != null) ? fromLeft : n.data;
+        // --- Fused find-and-remove: one descent records the path, the found node is
+        // --- unlinked and its ancestors are fixed up on the way back ---
+
+        public Card removeMinHealth(int hpLimit) { // min H_cur > hpLimit
+            if (keys != null) {
+                int i = firstAbove(hpLimit);
+                return (i < count) ? removeAt(i) : null;
+            }
+            int d = 0, found = -1;
+            Node n = root;
+            while (n != null) {
+                innerProbes++;
+                if (n.H_max_subtree <= hpLimit) break; // Pruning
+                innerPath[d] = n;
+                if (n.data.H_cur <= hpLimit) {
+                    n = n.right;
+                } else {
+                    found = d; // Best so far, anything better is further left
+                    n = n.left;
+                }
+                d++;
+            }
+            if (found < 0) return null;
+            Card card = innerPath[found].data;
+            root = relink(found, unlink(innerPath[found]), card);
+            maybeDemote();
+            return card;
+        }
+
+        public Card removeMin() { // min H_cur (also answers "min H_cur <= hpLimit" when it exists)
+            if (keys != null) {
+                innerProbes++;
+                return (count == 0) ? null : removeAt(0);
+            }
+            if (root == null) return null;
+            int d = 0;
+            Node n = root;
+            innerProbes++;
+            while (n.left != null) {
+                innerPath[d++] = n;
+                n = n.left;
+                innerProbes++;
             }
+            Card card = n.data;
+            root = relink(d, unlink(n), card);
+            maybeDemote();
+            return card;
         }
     }
     // --- End of Inner HealthTree class ---
@@ -202,6 +648,7 @@ public class AttackTree {
         int A_max_subtree; // Max A_cur in this subtree
         int H_max_subtree; //  Max H_cur in this subtree
         int H_min_subtree; // Min H_cur in this subtree
+        int cards; // Cards in this subtree
 
         AttackNode(Card card) {
             this.attackKey = card.A_cur;
@@ -211,10 +658,23 @@ public class AttackTree {
             this.A_max_subtree = card.A_cur;
             this.H_max_subtree = card.H_cur;
             this.H_min_subtree = card.H_cur;
+            this.cards = 1;
+        }
+
+        // Bulk build: the caller fills the health tree and calls update()
+        AttackNode(int attackKey) {
+            this.attackKey = attackKey;
+            this.healthTree = new HealthTree();
         }
     }
 
     private AttackNode root;
+    private int cardCount = 0;
+    private int collected = 0; // Write index of collect()
+    private Card[] stolen = new Card[16]; // Output buffer of removeAllForSteal()
+    private int stolenCount = 0;
+
+    public int size() { return cardCount; }
 
 
     // --- Getters for max/min values (used by CardDatabase) ---
@@ -235,6 +695,9 @@ public class AttackTree {
     private int getMinH(AttackNode n) {
         return (n == null) ? Integer.MAX_VALUE : n.H_min_subtree;
     }
+    private int getCards(AttackNode n) {
+        return (n == null) ? 0 : n.cards;
+    }
 
     // --- update() now maintains all augmented data ---
     private void update(AttackNode n) {
@@ -249,84 +712,219 @@ public class AttackTree {
 
         n.H_min_subtree = Math.min(n.healthTree.getSubtreeMinHealth(),
                 Math.min(getMinH(n.left), getMinH(n.right)));
+
+        n.cards = n.healthTree.size() + getCards(n.left) + getCards(n.right);
     }
 
 
     // --- Public Insert/Delete (Now call augmented update) ---
 
     public void insert(Card card) {
-        root = insert(root, card);
-    }
-    private AttackNode insert(AttackNode n, Card card) {
-        if (n == null) return new AttackNode(card);
-
-        int cmp = Integer.compare(card.A_cur, n.attackKey);
-
-        if (cmp < 0) {
-            n.left = insert(n.left, card);
-        } else if (cmp > 0) {
-            n.right = insert(n.right, card);
+        int d = 0;
+        AttackNode n = root;
+        while (n != null && n.attackKey != card.A_cur) {
+            path[d++] = n;
+            n = (card.A_cur < n.attackKey) ? n.left : n.right;
+        }
+        if (n == null) {
+            n = newAttackNode(card);
         } else {
             n.healthTree.insert(card);
             update(n); // Must update H_max/H_min even if no outer rebalance
-            return n;
         }
-        update(n); // Updates height, A_max, H_max, H_min
-        return rebalance(n);
+        root = relink(d, n, card.A_cur);
+        cardCount++;
     }
 
-    public void delete(Card card) {
-        root = delete(root, card);
+    // Hangs sub where the node at depth top of path[] was (on the side of attackKey),
+    // then updates and rebalances the ancestors bottom-up. Returns the new root.
+    private AttackNode relink(int top, AttackNode sub, int attackKey) {
+        for (int i = top - 1; i >= 0; i--) {
+            AttackNode parent = path[i];
+            if (attackKey < parent.attackKey) parent.left = sub;
+            else parent.right = sub;
+            update(parent); // Updates height, A_max, H_max, H_min
+            sub = rebalance(parent);
+        }
+        return sub;
     }
-    private AttackNode delete(AttackNode n, Card card) {
-        if (n == null) return null;
-
-        int cmp = Integer.compare(card.A_cur, n.attackKey);
 
-
-        if (cmp < 0) {
-            n.left = delete(n.left, card);
-        } else if (cmp > 0) {
-            n.right = delete(n.right, card);
+    public void delete(Card card) {
+        int d = 0;
+        AttackNode n = root;
+        while (n != null) {
+            nodesVisited++;
+            if (card.A_cur == n.attackKey) break;
+            path[d++] = n;
+            n = (card.A_cur < n.attackKey) ? n.left : n.right;
+        }
+        if (n == null || !n.healthTree.delete(card)) return; // Not in the deck: nothing changes
+        if (n.healthTree.isEmpty()) {
+            root = relink(d, removeOuterNode(n), card.A_cur);
         } else {
-            n.healthTree.delete(card);
-            if (n.healthTree.isEmpty()) {
-                return deleteOuterNode(n, card.A_cur);
-            }
+            update(n);
+            root = relink(d, n, card.A_cur);
         }
-        if (n == null) return null;
-        update(n); // Updates height, A_max, H_max, H_min
+        cardCount--;
+    }
+
+    // Unlinks outer node n, whose HealthTree is empty; returns the subtree replacing it
+    private AttackNode removeOuterNode(AttackNode n) {
+        nodesVisited++;
+        if (n.left == null || n.right == null) {
+            AttackNode child = (n.left == null) ? n.right : n.left;
+            recycle(n);
+            return child;
+        }
+        // The successor's node is the one unlinked; it leaves with n's empty HealthTree
+        int s = 0;
+        AttackNode m = n.right;
+        nodesVisited++;
+        while (m.left != null) {
+            spine[s++] = m;
+            m = m.left;
+            nodesVisited++;
+        }
+        HealthTree emptied = n.healthTree;
+        n.attackKey = m.attackKey;
+        n.healthTree = m.healthTree;
+        m.healthTree = emptied;
+        AttackNode sub = m.right;
+        recycle(m);
+        for (int i = s - 1; i >= 0; i--) {
+            AttackNode parent = spine[i];
+            parent.left = sub;
+            update(parent);
+            sub = rebalance(parent);
+        }
+        n.right = sub;
+        update(n);
         return rebalance(n);
     }
+    private AttackNode findMinNode(AttackNode n) {
+        while (n.left != null) n = n.left;
+        return n;
+    }
+    private AttackNode newAttackNode(Card card) {
+        AttackNode n = freeAttackNodes;
+        if (n == null) return new AttackNode(card);
+        freeAttackNodes = n.right;
+        n.right = null;
+        n.attackKey = card.A_cur;
+        n.healthTree.insert(card);
+        update(n);
+        return n;
+    }
 
-    private AttackNode deleteOuterNode(AttackNode n, int attackKey) {
-        if (n == null) return null;
+    // ---
+    // --- Bulk Insert ---
+    // --- Small batches are inserted one by one (k log n). Large ones are sorted,
+    // --- merged with the in-order deck and rebuilt bottom-up (n + k).
+    // ---
 
+    private static final int BULK_REBUILD_RATIO = 8; // Rebuild once k * 8 >= n
 
-        int cmp = Integer.compare(attackKey, n.attackKey);
+    @Override
+    public void insertAll(Card[] cards, int count) {
+        if (count <= 0) return;
+        if ((long) count * BULK_REBUILD_RATIO < cardCount) {
+            for (int i = 0; i < count; i++) insert(cards[i]);
+            return;
+        }
+        sortByKey(cards, count);
+
+        // In-order deck, then a linear merge with the sorted batch
+        Card[] existing = new Card[cardCount];
+        collected = 0;
+        collect(root, existing);
+        Card[] merged = new Card[cardCount + count];
+        int i = 0, j = 0, k = 0;
+        while (i < cardCount && j < count) {
+            merged[k++] = (compareKey(existing[i], cards[j]) <= 0) ? existing[i++] : cards[j++];
+        }
+        while (i < cardCount) merged[k++] = existing[i++];
+        while (j < count) merged[k++] = cards[j++];
 
+        buildFromSorted(merged, k);
+    }
 
-        if (cmp < 0) n.left = deleteOuterNode(n.left, attackKey);
-        else if (cmp > 0) n.right = deleteOuterNode(n.right, attackKey);
-        else {
-            if (n.left == null) return n.right;
-            else if (n.right == null) return n.left;
-            else {
-                AttackNode successor = findMinNode(n.right);
-                n.attackKey = successor.attackKey;
-                n.healthTree = successor.healthTree;
-                n.right = deleteOuterNode(n.right, successor.attackKey);
-            }
+    /**
+     * Replaces the deck with the cards of a[0, n), which must be sorted by
+     * (A_cur, H_cur, entryTime). Every tree is built perfectly balanced,
+     * bottom-up, with the augmented values filled in by update().
+     */
+    public void buildFromSorted(Card[] a, int n) {
+        // Boundaries of the runs of equal A_cur (one outer node each)
+        int groups = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || a[i].A_cur != a[i - 1].A_cur) groups++;
         }
-        if (n == null) return null;
-        update(n); // Updates height, A_max, H_max, H_min
-        return rebalance(n);
+        int[] groupStart = new int[groups + 1];
+        int g = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || a[i].A_cur != a[i - 1].A_cur) groupStart[g++] = i;
+        }
+        groupStart[groups] = n;
+
+        root = buildOuter(a, groupStart, 0, groups);
+        cardCount = n;
     }
-    private AttackNode findMinNode(AttackNode n) {
-        while (n.left != null) n = n.left;
+    private AttackNode buildOuter(Card[] a, int[] groupStart, int lo, int hi) {
+        if (lo >= hi) return null;
+        int mid = (lo + hi) >>> 1;
+        AttackNode n = new AttackNode(a[groupStart[mid]].A_cur);
+        n.healthTree.build(a, groupStart[mid], groupStart[mid + 1]);
+        n.left = buildOuter(a, groupStart, lo, mid);
+        n.right = buildOuter(a, groupStart, mid + 1, hi);
+        update(n);
         return n;
     }
 
+    @Override
+    public void loadSorted(Card[] cards, int count) {
+        if (cardCount == 0) buildFromSorted(cards, count);
+        else insertAll(cards, count);
+    }
+
+    @Override
+    public Card[] toSortedArray() {
+        Card[] out = new Card[cardCount];
+        collected = 0;
+        collect(root, out);
+        return out;
+    }
+
+    // Appends the deck in (A_cur, H_cur, entryTime) order
+    private void collect(AttackNode n, Card[] out) {
+        if (n == null) return;
+        collect(n.left, out);
+        n.healthTree.collect(out);
+        collect(n.right, out);
+    }
+
+    private static int compareKey(Card x, Card y) {
+        if (x.A_cur != y.A_cur) return (x.A_cur < y.A_cur) ? -1 : 1;
+        if (x.H_cur != y.H_cur) return (x.H_cur < y.H_cur) ? -1 : 1;
+        return Long.compare(x.entryTime, y.entryTime);
+    }
+
+    // Bottom-up merge sort of a[0, n) by (A_cur, H_cur, entryTime)
+    static void sortByKey(Card[] a, int n) {
+        Card[] src = a, dst = new Card[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) dst[k++] = (compareKey(src[i], src[j]) <= 0) ? src[i++] : src[j++];
+                while (i < mid) dst[k++] = src[i++];
+                while (j < hi) dst[k++] = src[j++];
+            }
+            Card[] t = src; src = dst; dst = t;
+        }
+        if (src != a) System.arraycopy(src, 0, a, 0, n);
+    }
+
+
     // --- Outer Tree Rebalancing (Calls augmented update) ---
     private int getHeight(AttackNode n) { return (n == null) ? 0 : n.height; }
     private int getBalance(AttackNode n) { return (n == null) ? 0 : getHeight(n.left) - getHeight(n.right); }
@@ -344,6 +942,7 @@ public class AttackTree {
         return n;
     }
     private AttackNode rightRotate(AttackNode y) {
+        if (EngineStats.ENABLED) rotations++;
         AttackNode x = y.left; AttackNode T2 = x.right;
         x.right = y; y.left = T2;
         update(y); // Update y *first* (it's the child)
@@ -351,6 +950,7 @@ public class AttackTree {
         return x;
     }
     private AttackNode leftRotate(AttackNode x) {
+        if (EngineStats.ENABLED) rotations++;
         AttackNode y = x.right; AttackNode T2 = y.left;
         y.left = x; x.right = T2;
         update(x); // Update x *first* (it's the child)
@@ -359,6 +959,84 @@ public class AttackTree {
     }
 
 
+    // ---
+    // --- Range Steal (split/join) ---
+    // --- Every outer node whose subtree can hold a stolen card is filtered
+    // --- recursively and the kept parts are re-joined, so the whole removal
+    // --- costs O(k log(n/k + 1) + log n) outer work instead of k full deletes.
+    // ---
+
+    @Override
+    public Card[] removeAllForSteal(int attLimit, int hpLimit) {
+        stolenCount = 0;
+        root = removeAllForSteal(root, attLimit, hpLimit);
+        cardCount -= stolenCount;
+
+        Card[] result = new Card[stolenCount];
+        System.arraycopy(stolen, 0, result, 0, stolenCount);
+        for (int i = 0; i < stolenCount; i++) stolen[i] = null;
+        return result;
+    }
+
+    // In-order, so the cards come out in (A_cur, H_cur, entryTime) order
+    private AttackNode removeAllForSteal(AttackNode n, int attLimit, int hpLimit) {
+        if (n == null) return null;
+        nodesVisited++;
+        if (n.A_max_subtree <= attLimit || n.H_max_subtree <= hpLimit) return n; // Nothing to steal here
+
+        AttackNode left = (n.attackKey > attLimit) ? removeAllForSteal(n.left, attLimit, hpLimit) : n.left;
+        if (n.attackKey > attLimit && n.healthTree.getSubtreeMaxHealth() > hpLimit) {
+            n.healthTree.removeAbove(hpLimit);
+        }
+        AttackNode right = removeAllForSteal(n.right, attLimit, hpLimit);
+        if (!n.healthTree.isEmpty()) return join(left, n, right);
+        recycle(n);
+        return join(left, right);
+    }
+
+    private void appendStolen(Card card) {
+        if (stolenCount == stolen.length) {
+            Card[] bigger = new Card[stolen.length * 2];
+            System.arraycopy(stolen, 0, bigger, 0, stolenCount);
+            stolen = bigger;
+        }
+        stolen[stolenCount++] = card;
+    }
+
+    // AVL join: keys of l < m < keys of r, heights may differ by any amount
+    private AttackNode join(AttackNode l, AttackNode m, AttackNode r) {
+        int hl = getHeight(l), hr = getHeight(r);
+        if (hl > hr + 1) {
+            l.right = join(l.right, m, r);
+            update(l);
+            return rebalance(l);
+        }
+        if (hr > hl + 1) {
+            r.left = join(l, m, r.left);
+            update(r);
+            return rebalance(r);
+        }
+        m.left = l;
+        m.right = r;
+        update(m);
+        return m;
+    }
+
+    // Join without a middle node: r's minimum becomes the middle
+    private AttackNode join(AttackNode l, AttackNode r) {
+        if (l == null) return r;
+        if (r == null) return l;
+        AttackNode m = findMinNode(r);
+        return join(l, m, removeMinNode(r));
+    }
+    private AttackNode removeMinNode(AttackNode n) {
+        if (n.left == null) return n.right;
+        n.left = removeMinNode(n.left);
+        update(n);
+        return rebalance(n);
+    }
+
+
     // ---
     // --- Search Methods (with H_min pruning) ---
     // ---
@@ -371,6 +1049,7 @@ public class AttackTree {
     }
     private void findBestP1Helper(AttackNode n, int strAtt, int strHp, SearchResult result) {
         if (n == null) return;
+        nodesVisited++;
 
         // --- PRUNING ---
         if (n.A_max_subtree < strHp) return;
@@ -406,6 +1085,7 @@ public class AttackTree {
     }
     private void findBestP2Helper_Reverse(AttackNode n, int strAtt, int strHp, SearchResult result) {
         if (n == null) return;
+        nodesVisited++;
 
 
         if (n.H_max_subtree <= strAtt) return;
@@ -439,6 +1119,7 @@ public class AttackTree {
     }
     private void findBestP3Helper(AttackNode n, int strAtt, int strHp, SearchResult result) {
         if (n == null) return;
+        nodesVisited++;
 
         // --- H_MIN PRUNING ---
         if (n.A_max_subtree < strHp) return;
@@ -446,7 +1127,6 @@ public class AttackTree {
 
         if (n.H_min_subtree > strAtt) return;
 
-        // MODIFIED: Inlined comparison
         int cmp = Integer.compare(n.attackKey, strHp); // (A_cur vs strHp)
 
 
@@ -472,7 +1152,8 @@ public class AttackTree {
     public Card findBestP4_Reverse() {
         if (root == null) return null;
         AttackNode n = root;
-        while (n.right != null) n = n.right; // Go to max A_cur (O(log N_attack))
+        nodesVisited++;
+        while (n.right != null) { n = n.right; nodesVisited++; } // Go to max A_cur (O(log N_attack))
         return n.healthTree.findMin(); // Get min H_cur (O(log N_health))
     }
 
@@ -484,6 +1165,7 @@ public class AttackTree {
     }
     private void findForStealHelper(AttackNode n, int attLimit, int hpLimit, SearchResult result) {
         if (n == null) return;
+        nodesVisited++;
 
         if (n.A_max_subtree <= attLimit) return;
         if (n.H_max_subtree <= hpLimit) return;
@@ -506,4 +1188,163 @@ public class AttackTree {
             findForStealHelper(n.right, attLimit, hpLimit, result);
         }
     }
+
+
+    // ---
+    // --- Candidate Counting (read-only) ---
+    // --- An A_cur range is summed from subtree card counts; H_max/H_min settle whole
+    // --- subtrees that lie on one side of the H limit, so only subtrees mixing both
+    // --- sides are entered (O(log n) outer nodes plus one O(log k) rank per entered
+    // --- bucket; linear in distinct A_cur values only if every subtree is mixed).
+    // ---
+
+    @Override
+    public int countCandidates(int priority, int strAtt, int strHp) {
+        switch (priority) {
+            case 1: return countAtLeast(root, strHp, strAtt); // A_cur >= strHp, H_cur > strAtt
+            case 2: return countBelow(root, strHp, strAtt); // A_cur < strHp, H_cur > strAtt
+            case 3: return countAttackAtLeast(root, strHp) - countAtLeast(root, strHp, strAtt);
+            case 4: return (getCards(root) - countAttackAtLeast(root, strHp)) - countBelow(root, strHp, strAtt);
+            default: return 0;
+        }
+    }
+
+    // Cards with A_cur >= aMin and H_cur > hLimit
+    private int countAtLeast(AttackNode n, int aMin, int hLimit) {
+        if (n == null) return 0;
+        nodesVisited++;
+        if (n.A_max_subtree < aMin || n.H_max_subtree <= hLimit) return 0;
+        if (n.attackKey < aMin) return countAtLeast(n.right, aMin, hLimit);
+        return countAtLeast(n.left, aMin, hLimit) + n.healthTree.countAbove(hLimit) + countAbove(n.right, hLimit);
+    }
+
+    // Cards with A_cur < aLimit and H_cur > hLimit
+    private int countBelow(AttackNode n, int aLimit, int hLimit) {
+        if (n == null) return 0;
+        nodesVisited++;
+        if (n.H_max_subtree <= hLimit) return 0;
+        if (n.attackKey >= aLimit) return countBelow(n.left, aLimit, hLimit);
+        return countAbove(n.left, hLimit) + n.healthTree.countAbove(hLimit) + countBelow(n.right, aLimit, hLimit);
+    }
+
+    // Cards of the whole subtree with H_cur > hLimit
+    private int countAbove(AttackNode n, int hLimit) {
+        if (n == null) return 0;
+        nodesVisited++;
+        if (n.H_max_subtree <= hLimit) return 0;
+        if (n.H_min_subtree > hLimit) return n.cards;
+        return countAbove(n.left, hLimit) + n.healthTree.countAbove(hLimit) + countAbove(n.right, hLimit);
+    }
+
+    // Cards with A_cur >= aMin (O(log n) from the counts alone)
+    private int countAttackAtLeast(AttackNode n, int aMin) {
+        int c = 0;
+        while (n != null) {
+            nodesVisited++;
+            if (n.attackKey >= aMin) {
+                c += n.healthTree.size() + getCards(n.right);
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return c;
+    }
+
+
+    // ---
+    // --- Fused Find-and-Remove (battle hot path) ---
+    // --- Same pruning as the searches above, but the winning card is unlinked
+    // --- on the way back up, so no second delete() descent is needed.
+    // --- Subtrees where nothing was removed are returned untouched.
+    // ---
+
+    @Override
+    public Card removeBest(int priority, int strAtt, int strHp) {
+        reusableSearchResult.bestCard = null; // Reset
+        switch (priority) {
+            case 1: root = removeBestP1(root, strAtt, strHp, reusableSearchResult); break;
+            case 2: root = removeBestP2_Reverse(root, strAtt, strHp, reusableSearchResult); break;
+            case 3: root = removeBestP3(root, strAtt, strHp, reusableSearchResult); break;
+            case 4: if (root != null) root = removeBestP4_Reverse(root, reusableSearchResult); break;
+        }
+        if (reusableSearchResult.bestCard != null) cardCount--;
+        return reusableSearchResult.bestCard;
+    }
+
+    // Called after a card was removed from n's subtree (or from n itself)
+    private AttackNode afterRemoval(AttackNode n) {
+        if (n.healthTree.isEmpty()) return removeOuterNode(n);
+        update(n);
+        return rebalance(n);
+    }
+
+    private AttackNode removeBestP1(AttackNode n, int strAtt, int strHp, SearchResult result) {
+        if (n == null) return null;
+        nodesVisited++;
+        if (n.A_max_subtree < strHp) return n;
+        if (n.H_max_subtree <= strAtt) return n;
+
+        if (n.attackKey < strHp) { // A_cur < strHp (invalid)
+            n.right = removeBestP1(n.right, strAtt, strHp, result);
+        } else { // A_cur >= strHp (valid)
+            n.left = removeBestP1(n.left, strAtt, strHp, result); // Check left first (min A_cur)
+            if (result.bestCard == null && n.healthTree.getSubtreeMaxHealth() > strAtt) {
+                result.bestCard = n.healthTree.removeMinHealth(strAtt);
+            }
+            if (result.bestCard == null) {
+                n.right = removeBestP1(n.right, strAtt, strHp, result);
+            }
+        }
+        return (result.bestCard == null) ? n : afterRemoval(n);
+    }
+
+    private AttackNode removeBestP2_Reverse(AttackNode n, int strAtt, int strHp, SearchResult result) {
+        if (n == null) return null;
+        nodesVisited++;
+        if (n.H_max_subtree <= strAtt) return n;
+
+        if (n.attackKey >= strHp) { // A_cur >= strHp (invalid)
+            n.left = removeBestP2_Reverse(n.left, strAtt, strHp, result);
+        } else { // A_cur < strHp (valid)
+            n.right = removeBestP2_Reverse(n.right, strAtt, strHp, result); // Check right first (max A_cur)
+            if (result.bestCard == null && n.healthTree.getSubtreeMaxHealth() > strAtt) {
+                result.bestCard = n.healthTree.removeMinHealth(strAtt);
+            }
+            if (result.bestCard == null) {
+                n.left = removeBestP2_Reverse(n.left, strAtt, strHp, result);
+            }
+        }
+        return (result.bestCard == null) ? n : afterRemoval(n);
+    }
+
+    private AttackNode removeBestP3(AttackNode n, int strAtt, int strHp, SearchResult result) {
+        if (n == null) return null;
+        nodesVisited++;
+        if (n.A_max_subtree < strHp) return n;
+        if (n.H_min_subtree > strAtt) return n;
+
+        if (n.attackKey < strHp) { // A_cur < strHp (invalid)
+            n.right = removeBestP3(n.right, strAtt, strHp, result);
+        } else { // A_cur >= strHp (valid)
+            n.left = removeBestP3(n.left, strAtt, strHp, result); // Check left first (min A_cur)
+            if (result.bestCard == null && n.healthTree.getSubtreeMinHealth() <= strAtt) {
+                result.bestCard = n.healthTree.removeMin(); // min H_cur, known to be <= strAtt
+            }
+            if (result.bestCard == null) {
+                n.right = removeBestP3(n.right, strAtt, strHp, result);
+            }
+        }
+        return (result.bestCard == null) ? n : afterRemoval(n);
+    }
+
+    private AttackNode removeBestP4_Reverse(AttackNode n, SearchResult result) {
+        nodesVisited++;
+        if (n.right != null) {
+            n.right = removeBestP4_Reverse(n.right, result); // Go to max A_cur
+        } else {
+            result.bestCard = n.healthTree.removeMin(); // Then min H_cur
+        }
+        return afterRemoval(n);
+    }
 }
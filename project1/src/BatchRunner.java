@@ -0,0 +1,94 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: BatchRunner.java ---
+ * (Replays every game log of a directory in parallel on a fork-join pool;
+ *  each file gets its own Game, so no state is shared between games)
+ * ======================================================================
+ *
+ * Usage: java BatchRunner <input_dir> <output_dir> [--threads N] [--scale] [--array-deck] [--offline]
+ *   --threads N  Pool size (default: available processors)
+ *   --scale      Run the whole batch with 1, 2, 4, ... threads up to the pool size
+ *                and report games/sec for each
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java BatchRunner <input_dir> <output_dir> [--threads N] [--scale] [--array-deck] [--offline]");
+            return;
+        }
+        File inputDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean scale = false;
+        boolean arrayDeck = false;
+        boolean offline = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--scale")) scale = true;
+            else if (args[i].equals("--array-deck")) arrayDeck = true;
+            else if (args[i].equals("--offline")) offline = true;
+        }
+
+        File[] inputs = inputDir.listFiles(File::isFile);
+        if (inputs == null || inputs.length == 0) {
+            System.out.println("No input files in " + inputDir);
+            return;
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.out.println("Cannot create output directory " + outputDir);
+            return;
+        }
+
+        if (scale) {
+            for (int t = 1; t < threads; t *= 2) runBatch(inputs, outputDir, t, arrayDeck, offline);
+        }
+        runBatch(inputs, outputDir, threads, arrayDeck, offline);
+    }
+
+    /**
+     * Plays all inputs on a pool of the given size and prints the aggregate rate.
+     * @return the number of games that finished without an I/O error
+     */
+    public static int runBatch(File[] inputs, File outputDir, int threads, boolean arrayDeck, boolean offline) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[inputs.length];
+        boolean[] finished = new boolean[inputs.length];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < inputs.length; i++) {
+            final int index = i;
+            tasks[i] = pool.submit(() -> {
+                finished[index] = playOne(inputs[index], outputDir, arrayDeck, offline);
+            });
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        int games = 0;
+        for (boolean ok : finished) if (ok) games++;
+        System.out.printf("%d games, %d threads: %.3f s, %.1f games/sec%n",
+                games, threads, seconds, games / seconds);
+        return games;
+    }
+
+    private static boolean playOne(File input, File outputDir, boolean arrayDeck, boolean offline) {
+        String inputFile = input.getPath();
+        String outputFile = new File(outputDir, input.getName()).getPath();
+        Game game = new Game(new CardDatabase(Game.createDeck(inputFile, arrayDeck, offline)));
+        try {
+            game.play(inputFile, outputFile);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed on " + inputFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: BitmapAttackTree.java ---
+ * (AttackTree with its outer AVL tree replaced by a hierarchical 64-ary
+ *  bitmap over attack values, van Emde Boas style: one bit per non-empty
+ *  attack value, one bit per non-empty 64-block above that, and so on)
+ * (Every block stores the MAX H and MIN H of its cards, so "min A_cur >= x"
+ *  and "max A_cur < x" searches with an H condition are a few word scans
+ *  per level instead of an O(log n) pointer walk)
+ * (Inner containers are AttackTree's own HealthTrees, small-set arrays included)
+ * (Blocks also count their cards, for count_candidates)
+ * ======================================================================
+ *
+ * Attack values must lie in [0, maxAttack]; Game.createDeck() pre-scans the
+ * input for that bound (A_cur never exceeds the drawn attack).
+ */
+public class BitmapAttackTree implements DeckIndex {
+
+    private static final int BITS = 6; // 64-ary
+    private static final int FAN_OUT = 1 << BITS;
+
+    private final AttackTree host; // Owns the inner HealthTrees and their counters
+    private final int levels; // Universe is FAN_OUT^levels attack values
+    private final AttackTree.HealthTree[] buckets; // Per attack value (null if empty)
+
+    // bitmap[k]: bit j set iff level-k node j is non-empty (level 0 nodes are attack values)
+    private final long[][] bitmap;
+    // maxH[k][j] / minH[k][j]: H_cur range of level-k node j, for k >= 1 (level 0 reads the bucket)
+    private final int[][] maxH;
+    private final int[][] minH;
+    // cards[k][j]: cards under level-k node j, for k >= 1 (level 0 reads the bucket)
+    private final int[][] cards;
+
+    private int cardCount = 0;
+    private long wordProbes = 0; // Bitmap words examined by searches
+
+    public BitmapAttackTree(int maxAttack) {
+        this(maxAttack, AttackTree.DEFAULT_SMALL_SET_THRESHOLD);
+    }
+
+    public BitmapAttackTree(int maxAttack, int smallSetThreshold) {
+        this.host = new AttackTree(smallSetThreshold);
+        int levels = 1;
+        long universe = FAN_OUT;
+        while (universe <= maxAttack) {
+            universe <<= BITS;
+            levels++;
+        }
+        this.levels = levels;
+        this.buckets = new AttackTree.HealthTree[(int) universe];
+
+        bitmap = new long[levels][];
+        maxH = new int[levels + 1][];
+        minH = new int[levels + 1][];
+        cards = new int[levels + 1][];
+        for (int k = 0; k < levels; k++) bitmap[k] = new long[(int) (universe >>> (BITS * (k + 1)))];
+        for (int k = 1; k <= levels; k++) {
+            int nodes = (int) (universe >>> (BITS * k));
+            maxH[k] = new int[nodes];
+            minH[k] = new int[nodes];
+            cards[k] = new int[nodes];
+            for (int j = 0; j < nodes; j++) minH[k][j] = Integer.MAX_VALUE;
+        }
+    }
+
+    private int universe() { return buckets.length; }
+
+    public int size() { return cardCount; }
+
+    // --- Node summaries (level 0 = one attack value) ---
+    private int nodeMaxH(int k, int j) { return (k == 0) ? buckets[j].getSubtreeMaxHealth() : maxH[k][j]; }
+    private int nodeMinH(int k, int j) { return (k == 0) ? buckets[j].getSubtreeMinHealth() : minH[k][j]; }
+
+    private boolean passes(int k, int j, int hLimit, boolean above) {
+        return above ? nodeMaxH(k, j) > hLimit : nodeMinH(k, j) <= hLimit;
+    }
+
+    /**
+     * Recomputes the bits and summaries on the path above attack value a
+     * after its bucket changed by delta cards; the H summaries stop as soon
+     * as a level is unchanged (the counts always go up to the root).
+     */
+    private void refresh(int a, int delta) {
+        if (delta != 0) {
+            for (int k = 1; k <= levels; k++) cards[k][a >>> (BITS * k)] += delta;
+        }
+        AttackTree.HealthTree bucket = buckets[a];
+        boolean nonEmpty = bucket != null && !bucket.isEmpty();
+        if (!nonEmpty) buckets[a] = null;
+        setBit(0, a, nonEmpty);
+
+        int j = a;
+        for (int k = 1; k <= levels; k++) {
+            int parent = j >>> BITS;
+            long word = bitmap[k - 1][parent];
+            int max = 0, min = Integer.MAX_VALUE;
+            for (long m = word; m != 0; m &= m - 1) {
+                int child = (parent << BITS) | Long.numberOfTrailingZeros(m);
+                max = Math.max(max, nodeMaxH(k - 1, child));
+                min = Math.min(min, nodeMinH(k - 1, child));
+            }
+            if (maxH[k][parent] == max && minH[k][parent] == min) return; // Same above here too
+            maxH[k][parent] = max;
+            minH[k][parent] = min;
+            if (k < levels) setBit(k, parent, word != 0);
+            j = parent;
+        }
+    }
+
+    private void setBit(int k, int j, boolean value) {
+        if (value) bitmap[k][j >>> BITS] |= 1L << (j & (FAN_OUT - 1));
+        else bitmap[k][j >>> BITS] &= ~(1L << (j & (FAN_OUT - 1)));
+    }
+
+    // ---
+    // --- Successor / predecessor searches with an H condition ---
+    // --- (above: some card has H_cur > hLimit; !above: some card has H_cur <= hLimit)
+    // ---
+
+    /**
+     * Smallest attack value >= from whose bucket passes the H test, or -1.
+     */
+    private int next(int from, int hLimit, boolean above) {
+        if (from < 0) from = 0;
+        if (from >= universe()) return -1;
+        int j = from;
+        for (int k = 0; k < levels; k++) {
+            int bit = j & (FAN_OUT - 1);
+            // Level 0 includes from itself; higher levels only blocks after the one already scanned
+            long mask = (k == 0) ? -1L << bit : (bit == FAN_OUT - 1) ? 0 : -1L << (bit + 1);
+            wordProbes++;
+            for (long m = bitmap[k][j >>> BITS] & mask; m != 0; m &= m - 1) {
+                int node = (j & ~(FAN_OUT - 1)) | Long.numberOfTrailingZeros(m);
+                if (passes(k, node, hLimit, above)) return descendFirst(k, node, hLimit, above);
+            }
+            j >>>= BITS;
+        }
+        return -1;
+    }
+
+    // First attack value under level-k node j that passes (the node's summary says one exists)
+    private int descendFirst(int k, int j, int hLimit, boolean above) {
+        while (k > 0) {
+            wordProbes++;
+            int found = -1;
+            for (long m = bitmap[k - 1][j]; m != 0; m &= m - 1) {
+                int child = (j << BITS) | Long.numberOfTrailingZeros(m);
+                if (passes(k - 1, child, hLimit, above)) {
+                    found = child;
+                    break;
+                }
+            }
+            j = found;
+            k--;
+        }
+        return j;
+    }
+
+    /**
+     * Largest attack value <= from with some H_cur > hLimit, or -1.
+     */
+    private int prev(int from, int hLimit) {
+        if (from < 0) return -1;
+        if (from >= universe()) from = universe() - 1;
+        int j = from;
+        for (int k = 0; k < levels; k++) {
+            int bit = j & (FAN_OUT - 1);
+            long mask = (k == 0) ? -1L >>> (FAN_OUT - 1 - bit) : (bit == 0) ? 0 : -1L >>> (FAN_OUT - bit);
+            wordProbes++;
+            long m = bitmap[k][j >>> BITS] & mask;
+            while (m != 0) {
+                int b = FAN_OUT - 1 - Long.numberOfLeadingZeros(m);
+                int node = (j & ~(FAN_OUT - 1)) | b;
+                if (nodeMaxH(k, node) > hLimit) return descendLast(k, node, hLimit);
+                m &= ~(1L << b);
+            }
+            j >>>= BITS;
+        }
+        return -1;
+    }
+
+    private int descendLast(int k, int j, int hLimit) {
+        while (k > 0) {
+            wordProbes++;
+            int found = -1;
+            long m = bitmap[k - 1][j];
+            while (m != 0) {
+                int b = FAN_OUT - 1 - Long.numberOfLeadingZeros(m);
+                int child = (j << BITS) | b;
+                if (nodeMaxH(k - 1, child) > hLimit) {
+                    found = child;
+                    break;
+                }
+                m &= ~(1L << b);
+            }
+            j = found;
+            k--;
+        }
+        return j;
+    }
+
+    // ---
+    // --- Candidate counting ---
+    // ---
+
+    // Cards under level-k node j with H_cur > hLimit (summaries settle whole blocks)
+    private int countNode(int k, int j, int hLimit) {
+        if (k == 0) return buckets[j].countAbove(hLimit);
+        if (cards[k][j] == 0 || maxH[k][j] <= hLimit) return 0;
+        if (minH[k][j] > hLimit) return cards[k][j];
+        wordProbes++;
+        int c = 0;
+        for (long m = bitmap[k - 1][j]; m != 0; m &= m - 1) {
+            c += countNode(k - 1, (j << BITS) | Long.numberOfTrailingZeros(m), hLimit);
+        }
+        return c;
+    }
+
+    /**
+     * Cards with A_cur >= from and H_cur > hLimit: the same word walk as next(),
+     * summing whole blocks instead of stopping at the first.
+     */
+    private int countFrom(int from, int hLimit) {
+        if (from <= 0) return countNode(levels, 0, hLimit);
+        if (from >= universe()) return 0;
+        int c = 0;
+        int j = from;
+        for (int k = 0; k < levels; k++) {
+            int bit = j & (FAN_OUT - 1);
+            long mask = (k == 0) ? -1L << bit : (bit == FAN_OUT - 1) ? 0 : -1L << (bit + 1);
+            wordProbes++;
+            for (long m = bitmap[k][j >>> BITS] & mask; m != 0; m &= m - 1) {
+                c += countNode(k, (j & ~(FAN_OUT - 1)) | Long.numberOfTrailingZeros(m), hLimit);
+            }
+            j >>>= BITS;
+        }
+        return c;
+    }
+
+    @Override
+    public int countCandidates(int priority, int strAtt, int strHp) {
+        int p1 = countFrom(strHp, strAtt);
+        switch (priority) {
+            case 1: return p1;
+            case 2: return countFrom(0, strAtt) - p1;
+            case 3: return countFrom(strHp, Integer.MIN_VALUE) - p1;
+            case 4: return cardCount - countFrom(0, strAtt) - countFrom(strHp, Integer.MIN_VALUE) + p1;
+            default: return 0;
+        }
+    }
+
+    // ---
+    // --- DeckIndex ---
+    // ---
+
+    // The pre-scanned attack range (health is unbounded)
+    @Override
+    public boolean accepts(int attack, int health) {
+        return attack >= 0 && attack < universe();
+    }
+
+    @Override
+    public void insert(Card card) {
+        int a = card.A_cur;
+        if (!accepts(a, card.H_cur)) {
+            throw new IllegalArgumentException("Card " + card.name + " (" + a + ", " + card.H_cur
+                    + ") is outside the pre-scanned attack range");
+        }
+        if (buckets[a] == null) buckets[a] = host.new HealthTree();
+        buckets[a].insert(card);
+        cardCount++;
+        refresh(a, 1);
+    }
+
+    @Override
+    public void delete(Card card) {
+        int a = card.A_cur;
+        if (a < 0 || a >= universe() || buckets[a] == null) return;
+        int before = buckets[a].size();
+        buckets[a].delete(card);
+        int delta = buckets[a].size() - before;
+        cardCount += delta;
+        refresh(a, delta);
+    }
+
+    @Override
+    public int getDeckMaxAttack() {
+        int a = prev(universe() - 1, -1);
+        return (a < 0) ? 0 : a;
+    }
+
+    @Override
+    public int getDeckMaxHealth() { return maxH[levels][0]; }
+
+    @Override
+    public Card findBestP1(int strAtt, int strHp) {
+        int a = next(strHp, strAtt, true);
+        return (a < 0) ? null : buckets[a].findMinHealth(strAtt);
+    }
+
+    @Override
+    public Card findBestP2_Reverse(int strAtt, int strHp) {
+        int a = prev(strHp - 1, strAtt);
+        return (a < 0) ? null : buckets[a].findMinHealth(strAtt);
+    }
+
+    @Override
+    public Card findBestP3(int strAtt, int strHp) {
+        int a = next(strHp, strAtt, false);
+        return (a < 0) ? null : buckets[a].findMin(); // Its min H_cur is <= strAtt
+    }
+
+    @Override
+    public Card findBestP4_Reverse() {
+        int a = prev(universe() - 1, -1);
+        return (a < 0) ? null : buckets[a].findMin();
+    }
+
+    @Override
+    public Card findForSteal(int attLimit, int hpLimit) {
+        if (attLimit == Integer.MAX_VALUE) return null;
+        int a = next(attLimit + 1, hpLimit, true);
+        return (a < 0) ? null : buckets[a].findMinHealth(hpLimit);
+    }
+
+    /**
+     * Fused find-and-remove: the bitmap search names the bucket, and the
+     * bucket removes its card in one descent.
+     */
+    @Override
+    public Card removeBest(int priority, int strAtt, int strHp) {
+        int a;
+        Card card;
+        switch (priority) {
+            case 1:
+                a = next(strHp, strAtt, true);
+                card = (a < 0) ? null : buckets[a].removeMinHealth(strAtt);
+                break;
+            case 2:
+                a = prev(strHp - 1, strAtt);
+                card = (a < 0) ? null : buckets[a].removeMinHealth(strAtt);
+                break;
+            case 3:
+                a = next(strHp, strAtt, false);
+                card = (a < 0) ? null : buckets[a].removeMin();
+                break;
+            case 4:
+                a = prev(universe() - 1, -1);
+                card = (a < 0) ? null : buckets[a].removeMin();
+                break;
+            default:
+                return null;
+        }
+        if (card != null) {
+            cardCount--;
+            refresh(a, -1);
+        }
+        return card;
+    }
+
+    @Override
+    public long getNodesVisited() { return wordProbes + host.getNodesVisited(); }
+
+    @Override
+    public long getInnerProbes() { return host.getInnerProbes(); }
+
+    @Override
+    public long getRotations() { return host.getRotations(); }
+}
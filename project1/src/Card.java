@@ -1,5 +1,8 @@
+import java.nio.charset.StandardCharsets;
+
 public class Card {
     String name;
+    byte[] nameBytes; // UTF-8, encoded once for ResultWriter
     int A_init, H_init;
     int A_base, H_base;
     int A_cur, H_cur;
@@ -11,8 +14,11 @@ public class Card {
     int revival_progress = 0;
     long discardTime = -1;
 
+    int handle = -1; // OffHeapCardStore record (off-heap deck only; -1 if none)
+
     public Card(String name, int attack, int health, long entryTime) {
         this.name = name;
+        this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
         this.A_init = attack;
         this.H_init = health;
         this.A_base = attack;
@@ -22,6 +28,35 @@ public class Card {
         this.entryTime = entryTime;
     }
 
+    // Empty card for OffHeapCardStore.load() and Checkpoint to fill in
+    Card(byte[] nameBytes) {
+        this.name = new String(nameBytes, StandardCharsets.UTF_8);
+        this.nameBytes = nameBytes;
+    }
+
+    /**
+     * Field-by-field copy (name and nameBytes are shared, they never change).
+     */
+    public Card copy() {
+        return new Card(this);
+    }
+
+    private Card(Card other) {
+        this.name = other.name;
+        this.nameBytes = other.nameBytes;
+        this.A_init = other.A_init;
+        this.H_init = other.H_init;
+        this.A_base = other.A_base;
+        this.H_base = other.H_base;
+        this.A_cur = other.A_cur;
+        this.H_cur = other.H_cur;
+        this.entryTime = other.entryTime;
+        this.A_cur_before_damage = other.A_cur_before_damage;
+        this.revival_progress = other.revival_progress;
+        this.discardTime = other.discardTime;
+        this.handle = other.handle;
+    }
+
     public boolean takeDamage(int damage) {
         this.A_cur_before_damage = this.A_cur;
         this.H_cur -= damage;
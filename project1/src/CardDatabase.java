@@ -1,3 +1,7 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /*
  * ======================================================================
  * --- COMPONENT: CardDatabase.java ---
@@ -12,92 +16,158 @@ public class CardDatabase {
     }
 
     // --- Inner Class: DiscardTree
+    // --- One AVL tree ordered by (HMissing ASC, discardTime ASC) serves both heal
+    // --- queries: "smallest HMissing" is its minimum, and "largest HMissing <= pool,
+    // --- earliest discardTime" is the first node of the last HMissing run <= pool.
     private class DiscardTree {
         private class Node {
             Card data;
             Node left, right;
-            int height;
+            int height, size;
             Node(Card data) {
                 this.data = data;
                 this.height = 1;
+                this.size = 1;
             }
         }
         private Node root;
-        private boolean sortAscending;
         private final SearchResult reusableSearchResult = new SearchResult();
 
-        public DiscardTree(boolean sortAscending) {
-            this.sortAscending = sortAscending;
+        // --- Unlinked nodes wait here (chained through right) for the next insert ---
+        private Node freeNodes;
+        private Node newNode(Card data) {
+            Node n = freeNodes;
+            if (n == null) return new Node(data);
+            freeNodes = n.right;
+            n.data = data;
+            n.right = null;
+            n.height = 1;
+            n.size = 1;
+            return n;
         }
+        private void recycle(Node n) {
+            n.data = null;
+            n.left = null;
+            n.right = freeNodes;
+            freeNodes = n;
+        }
+
+        public DiscardTree() {}
         private int getHeight(Node n) { return (n == null) ? 0 : n.height; }
-        private void updateHeight(Node n) { if(n != null) n.height = 1 + Math.max(getHeight(n.left), getHeight(n.right)); }
-
-        public int size() { return size(root); }
-        private int size(Node n) { return (n == null) ? 0 : 1 + size(n.left) + size(n.right); }
-
-        public void insert(Card card) { root = insert(root, card); }
-        private Node insert(Node n, Card card) {
-            if (n == null) return new Node(card);
-
-            //  Inlined comparison logic based on sortAscending flag
-            int h1 = card.getHMissing();
-            int h2 = n.data.getHMissing();
-            int cmp;
-            if (sortAscending) { // HMissing ASC, discardTime ASC
-                if (h1 < h2) cmp = -1;
-                else if (h1 > h2) cmp = 1;
-                else cmp = Long.compare(card.discardTime, n.data.discardTime);
-            } else { // HMissing DESC, discardTime ASC
-                if (h1 > h2) cmp = -1;
-                else if (h1 < h2) cmp = 1;
-                else cmp = Long.compare(card.discardTime, n.data.discardTime);
-            }
+        private int getSize(Node n) { return (n == null) ? 0 : n.size; }
+        private void update(Node n) {
+            if (n == null) return;
+            n.height = 1 + Math.max(getHeight(n.left), getHeight(n.right));
+            n.size = 1 + getSize(n.left) + getSize(n.right);
+        }
 
-            if (cmp < 0) n.left = insert(n.left, card);
-            else if (cmp > 0) n.right = insert(n.right, card);
-            else return n;
-            updateHeight(n);
-            return rebalance(n);
+        public int size() { return getSize(root); } // Maintained, O(1)
+
+        // HMissing ASC, discardTime ASC
+        private int compare(Card a, Card b) {
+            int h1 = a.getHMissing();
+            int h2 = b.getHMissing();
+            if (h1 < h2) return -1;
+            if (h1 > h2) return 1;
+            return Long.compare(a.discardTime, b.discardTime);
+        }
+
+        // --- Insert and delete walk down with an explicit path (AVL height is
+        // --- bounded, see AttackTree) and fix the ancestors up on the way back ---
+        private final Node[] path = new Node[64];
+        private final Node[] spine = new Node[64];
+
+        public void insert(Card card) {
+            int d = 0;
+            Node n = root;
+            while (n != null) {
+                int cmp = compare(card, n.data);
+                if (cmp == 0) return;
+                path[d++] = n;
+                n = (cmp < 0) ? n.left : n.right;
+            }
+            root = relink(d, newNode(card), card);
         }
 
         public void delete(Card card) {
-            root = delete(root, card);
-        }
-        private Node delete(Node n, Card card) {
-            if (n == null) return null;
-
-            // Inlined comparison logic based on sortAscending flag
-            int h1 = card.getHMissing();
-            int h2 = n.data.getHMissing();
-            int cmp;
-            if (sortAscending) { // HMissing ASC, discardTime ASC
-                if (h1 < h2) cmp = -1;
-                else if (h1 > h2) cmp = 1;
-                else cmp = Long.compare(card.discardTime, n.data.discardTime);
-            } else { // HMissing DESC, discardTime ASC
-                if (h1 > h2) cmp = -1;
-                else if (h1 < h2) cmp = 1;
-                else cmp = Long.compare(card.discardTime, n.data.discardTime);
+            int d = 0;
+            Node n = root;
+            while (n != null) {
+                int cmp = compare(card, n.data);
+                if (cmp == 0) break;
+                path[d++] = n;
+                n = (cmp < 0) ? n.left : n.right;
+            }
+            if (n != null) root = relink(d, unlink(n), card);
+        }
+
+        // Hangs sub where the node at depth top of path[] was (on the side of key),
+        // then updates and rebalances the ancestors bottom-up; returns the new root
+        private Node relink(int top, Node sub, Card key) {
+            for (int i = top - 1; i >= 0; i--) {
+                Node parent = path[i];
+                if (compare(key, parent.data) < 0) parent.left = sub;
+                else parent.right = sub;
+                update(parent);
+                sub = rebalance(parent);
             }
+            return sub;
+        }
 
-            if (cmp < 0) n.left = delete(n.left, card);
-            else if (cmp > 0) n.right = delete(n.right, card);
-            else {
-                if (n.left == null) return n.right;
-                else if (n.right == null) return n.left;
-                else {
-                    Node successor = findMinNode(n.right);
-                    n.data = successor.data;
-                    n.right = delete(n.right, successor.data);
-                }
+        // Removes node n itself (a node with two children takes its successor's card)
+        private Node unlink(Node n) {
+            if (n.left == null || n.right == null) {
+                Node child = (n.left == null) ? n.right : n.left;
+                recycle(n);
+                return child;
+            }
+            int s = 0;
+            Node m = n.right;
+            while (m.left != null) {
+                spine[s++] = m;
+                m = m.left;
+            }
+            n.data = m.data;
+            Node sub = m.right;
+            recycle(m);
+            for (int i = s - 1; i >= 0; i--) {
+                spine[i].left = sub;
+                update(spine[i]);
+                sub = rebalance(spine[i]);
             }
-            if (n == null) return null;
-            updateHeight(n);
+            n.right = sub;
+            update(n);
             return rebalance(n);
         }
         private Node findMinNode(Node n) { while (n.left != null) n = n.left; return n; }
         public Card findMin() { return (root == null) ? null : findMinNode(root).data; }
 
+        // --- Checkpoint support: in-order snapshot and a balanced rebuild from one ---
+        public Card[] toSortedArray() {
+            Card[] out = new Card[size()];
+            fill(root, out, 0);
+            return out;
+        }
+        private int fill(Node n, Card[] out, int i) {
+            if (n == null) return i;
+            i = fill(n.left, out, i);
+            out[i++] = n.data;
+            return fill(n.right, out, i);
+        }
+        // Replaces the tree with the cards of a, sorted by (HMissing, discardTime)
+        public void build(Card[] a) {
+            root = build(a, 0, a.length);
+        }
+        private Node build(Card[] a, int lo, int hi) {
+            if (lo >= hi) return null;
+            int mid = (lo + hi) >>> 1;
+            Node n = newNode(a[mid]);
+            n.left = build(a, lo, mid);
+            n.right = build(a, mid + 1, hi);
+            update(n);
+            return n;
+        }
+
         private Node rebalance(Node n) {
             int balance = getBalance(n);
             if (balance > 1) {
@@ -115,64 +185,211 @@ public class CardDatabase {
         private Node rightRotate(Node y) {
             Node x = y.left; Node T2 = x.right;
             x.right = y; y.left = T2;
-            updateHeight(y); updateHeight(x);
+            update(y); update(x);
             return x;
         }
         private Node leftRotate(Node x) {
             Node y = x.right; Node T2 = y.left;
             y.left = x; x.right = T2;
-            updateHeight(x); updateHeight(y);
+            update(x); update(y);
             return y;
         }
 
-        // --- Custom Search for Healing P1/P2 ---
-        public Card findRevivable(int healPool) {
-            reusableSearchResult.bestCard = null; // Reset
-            findRevivableHelper(root, healPool, reusableSearchResult);
-            return reusableSearchResult.bestCard;
+        // --- Bulk Revival for Healing P1/P2 ---
+
+        /**
+         * Greedy carve-out: repeatedly takes the card with the largest
+         * HMissing <= healPool (earliest discardTime on ties) and pays for it.
+         * Each pick splits off the cards above the pool, then the run of the
+         * largest remaining HMissing, and removes that run's first card.
+         * @return the heal pool left over; picked cards go to revived[] in pick order
+         */
+        public int carveRevivable(int healPool) {
+            Node kept = null; // Cards above the pool at the time they were passed (all > rest)
+            Node rest = root;
+            while (healPool > 0 && rest != null) {
+                split(rest, healPool);
+                kept = join2(splitRight, kept);
+                rest = splitLeft;
+                if (rest == null) break;
+
+                // The run of the largest HMissing <= healPool, earliest discardTime first
+                int cost = findMaxNode(rest).data.getHMissing();
+                split(rest, cost - 1);
+                Node below = splitLeft;
+                Node run = removeMin(splitRight);
+                Card card = reusableSearchResult.bestCard;
+                recycle(removedNode);
+                rest = join2(below, run);
+
+                healPool -= cost;
+                addRevived(card);
+                if (EngineStats.ENABLED) stats.revivalIterations++;
+            }
+            root = join2(rest, kept);
+            return healPool;
         }
-        private void findRevivableHelper(Node n, int healPool, SearchResult result) {
-            if (n == null) return;
-            // This search is only called on discardTreeDesc (HMissing DESC)
-            // We want the largest HMissing <= healPool
-            if (n.data.getHMissing() > healPool) {
-                findRevivableHelper(n.right, healPool, result);
+        private Node findMaxNode(Node n) { while (n.right != null) n = n.right; return n; }
+
+        // --- Split / Join (AVL, height-based) ---
+        private Node splitLeft, splitRight;
+
+        // Splits n into (HMissing <= limit) and (HMissing > limit)
+        private void split(Node n, int limit) {
+            if (n == null) {
+                splitLeft = null;
+                splitRight = null;
                 return;
             }
-            // n.data.getHMissing() <= healPool, so this is a candidate
-            // Check left for a *better* candidate (larger HMissing)
-            findRevivableHelper(n.left, healPool, result);
-            if (result.bestCard != null) return; // Found a better one in left subtree
-            result.bestCard = n.data; // This is the best one
+            if (n.data.getHMissing() <= limit) {
+                split(n.right, limit);
+                splitLeft = join(n.left, n, splitLeft);
+            } else {
+                split(n.left, limit);
+                splitRight = join(splitRight, n, n.right);
+            }
+        }
+
+        // Joins l < k < r into one AVL tree, reusing node k
+        private Node join(Node l, Node k, Node r) {
+            int hl = getHeight(l), hr = getHeight(r);
+            if (hl > hr + 1) {
+                l.right = join(l.right, k, r);
+                update(l);
+                return rebalance(l);
+            }
+            if (hr > hl + 1) {
+                r.left = join(l, k, r.left);
+                update(r);
+                return rebalance(r);
+            }
+            k.left = l;
+            k.right = r;
+            update(k);
+            return k;
+        }
+
+        // Joins l < r (no middle node)
+        private Node join2(Node l, Node r) {
+            if (l == null) return r;
+            if (r == null) return l;
+            r = removeMin(r);
+            Node k = removedNode;
+            return join(l, k, r);
+        }
+
+        // Removes the first node (result in removedNode / reusableSearchResult)
+        private Node removedNode;
+        private Node removeMin(Node n) {
+            if (n.left == null) {
+                removedNode = n;
+                reusableSearchResult.bestCard = n.data;
+                return n.right;
+            }
+            n.left = removeMin(n.left);
+            update(n);
+            return rebalance(n);
         }
     }
     // --- End of DiscardTree Inner Class ---
 
     // --- The "Outer" Trees for the DECK ---
-    private AttackTree deckTree; // Only one tree (A_cur ASC)
+    private DeckIndex deckTree; // Only one tree (A_cur ASC)
 
     // --- The Trees for the DISCARD PILE ---
-    private DiscardTree discardTreeDesc; // P1/P2 Heal
-    private DiscardTree discardTreeAsc;  // P3 Heal
+    private DiscardTree discardTree; // (HMissing ASC, discardTime ASC): P1/P2 and P3 heal (null if a subclass keeps the pile)
+
+    // --- Cards revived by the current heal phase, in revival order ---
+    private Card[] revived = new Card[16];
+    private int revivedCount = 0;
+
+    private void addRevived(Card card) {
+        if (revivedCount == revived.length) {
+            Card[] bigger = new Card[revived.length * 2];
+            System.arraycopy(revived, 0, bigger, 0, revivedCount);
+            revived = bigger;
+        }
+        revived[revivedCount++] = card;
+    }
 
     // --- Game State Counters ---
     private int deckCount = 0;
-    private int discardCount = 0;
-    private static long discardTimeCounter = 0;
+    // --- Discard pile counters (also kept up by a subclass's own discard pile) ---
+    protected int discardCount = 0;
+    protected long discardTimeCounter = 0;
+
+    // --- Battle search mode and cost tracking ---
+    private boolean fusedRemoval = true; // false: search, then a separate delete()
+    private long battleCount = 0;
+    private long battleNodesVisited = 0;
+    private final EngineStats stats = new EngineStats(); // Updated only with EngineStats.ENABLED
 
 
     public CardDatabase() {
+        this(new AttackTree());
+    }
+
+    /**
+     * Creates a database over the given deck tree implementation
+     * (AttackTree, or the array-pooled ArrayAttackTree).
+     */
+    public CardDatabase(DeckIndex deckTree) {
+        this(deckTree, true);
+    }
+
+    /**
+     * Creates a database over the given deck tree; without ownsDiscardPile
+     * no DiscardTree is allocated, and the subclass keeps the discard pile
+     * itself (overriding addToDiscard, healCards and the checkpoint methods).
+     */
+    protected CardDatabase(DeckIndex deckTree, boolean ownsDiscardPile) {
         // Only one deck tree
-        this.deckTree = new AttackTree(); // MODIFIED
+        this.deckTree = deckTree;
 
         // Discard trees
-        this.discardTreeDesc = new DiscardTree(false);
-        this.discardTreeAsc = new DiscardTree(true);
+        if (ownsDiscardPile) this.discardTree = new DiscardTree();
     }
 
+    /**
+     * Starts a database that continues from source's deck count, discard
+     * counters and battle settings on the given deck tree (used by
+     * PersistentCardDatabase.fork(), which shares its own discard pile).
+     */
+    protected CardDatabase(CardDatabase source, DeckIndex deckTree) {
+        this(deckTree, false);
+        this.deckCount = source.deckCount;
+        this.discardCount = source.discardCount;
+        this.discardTimeCounter = source.discardTimeCounter;
+        this.fusedRemoval = source.fusedRemoval;
+    }
+
+    // --- Whether writeCheckpoint/readCheckpoint work on this database (Game checks first) ---
+    public boolean supportsCheckpoints() { return true; }
+
     public int getDeckCount() { return this.deckCount; }
     public int getDiscardCount() { return this.discardCount; }
 
+    public void setFusedRemoval(boolean fusedRemoval) { this.fusedRemoval = fusedRemoval; }
+    public boolean isFusedRemoval() { return this.fusedRemoval; }
+    public long getBattleCount() { return this.battleCount; }
+    public long getBattleNodesVisited() { return this.battleNodesVisited; }
+    public EngineStats getStats() { return this.stats; }
+
+    /**
+     * Number of deck cards in the given battle priority class (1-4) against
+     * a stranger (strAtt, strHp), or -1 if the deck tree cannot count.
+     */
+    public int countCandidates(int priority, int strAtt, int strHp) {
+        return deckTree.countCandidates(priority, strAtt, strHp);
+    }
+
+    /**
+     * Search-cost summary for engine_stats and the end-of-run report.
+     */
+    public String statsReport() {
+        return stats.report(deckTree, battleCount, battleNodesVisited);
+    }
+
     /**
      * Inserts a card into the *deck*.
      */
@@ -181,6 +398,20 @@ public class CardDatabase {
         card.discardTime = -1;
         deckTree.insert(card); // Only insert into one tree
         deckCount++;
+        if (EngineStats.ENABLED) stats.deckInserts++;
+    }
+
+    /**
+     * Inserts the first count cards of the array into the *deck* as one batch.
+     */
+    public void insertAll(Card[] cards, int count) {
+        for (int i = 0; i < count; i++) {
+            cards[i].revival_progress = 0;
+            cards[i].discardTime = -1;
+        }
+        deckTree.insertAll(cards, count);
+        deckCount += count;
+        if (EngineStats.ENABLED) stats.deckInserts += count;
     }
 
     /**
@@ -189,6 +420,7 @@ public class CardDatabase {
     public void remove(Card card) {
         deckTree.delete(card); // Only remove from one tree
         deckCount--;
+        if (EngineStats.ENABLED) stats.deckDeletes++;
     }
 
     /**
@@ -198,12 +430,13 @@ public class CardDatabase {
         card.H_cur = 0;
         card.revival_progress = 0;
         card.discardTime = discardTimeCounter++;
-        discardTreeDesc.insert(card);
-        discardTreeAsc.insert(card);
+        discardTree.insert(card);
         discardCount++;
     }
 
-    // --- Wrapper for BattleResult ---
+    // --- Wrapper for BattleResult (one per database, refilled by every battle) ---
+    private final BattleResult battleResult = new BattleResult(null, 0);
+
     public static class BattleResult {
         Card card;
         int priority;
@@ -215,77 +448,76 @@ public class CardDatabase {
 
     /**
      * Finds and removes the best card from the *deck* for battle.
+     * The result object is reused: it is valid until the next call.
      */
     public BattleResult findAndRemoveBestCard(int strAtt, int strHp) {
         Card bestCard = null;
         int priority = 0;
+        long visitsBefore = deckTree.getNodesVisited();
 
         // --- Priority Skipping ---
         // Get the absolute best card in the deck in O(1) time
         int A_max_deck = deckTree.getDeckMaxAttack();
         int H_max_deck = deckTree.getDeckMaxHealth();
 
-        if (A_max_deck < strHp && H_max_deck <= strAtt) {
-            // BEST POSSIBLE card is P4. Skip P1, P2, P3.
-            bestCard = deckTree.findBestP4_Reverse();
+        // P1 needs A_cur >= strHp and H_cur > strAtt
+        if (shouldSearch(1, A_max_deck >= strHp && H_max_deck > strAtt)) {
+            bestCard = takeBest(1, strAtt, strHp);
+            if (bestCard != null) priority = 1;
+        }
+        // P2 needs H_cur > strAtt
+        if (bestCard == null && shouldSearch(2, H_max_deck > strAtt)) {
+            bestCard = takeBest(2, strAtt, strHp);
+            if (bestCard != null) priority = 2;
+        }
+        // P3 needs A_cur >= strHp
+        if (bestCard == null && shouldSearch(3, A_max_deck >= strHp)) {
+            bestCard = takeBest(3, strAtt, strHp);
+            if (bestCard != null) priority = 3;
+        }
+        // P4 always succeeds on a non-empty deck
+        if (bestCard == null) {
+            bestCard = takeBest(4, strAtt, strHp);
             if (bestCard != null) priority = 4;
+        }
+        // --- END Priority Skipping ---
 
-        } else if (A_max_deck < strHp && H_max_deck > strAtt) {
-            // BEST POSSIBLE card is P2. Skip P1.
-            bestCard = deckTree.findBestP2_Reverse(strAtt, strHp);
-            if (bestCard != null) {
-                priority = 2;
-            } else {
-                // P2 failed, try P3/P4
-                bestCard = deckTree.findBestP3(strAtt, strHp);
-                if (bestCard != null) {
-                    priority = 3;
-                } else {
-                    bestCard = deckTree.findBestP4_Reverse();
-                    if (bestCard != null) priority = 4;
-                }
-            }
+        battleCount++;
+        battleNodesVisited += deckTree.getNodesVisited() - visitsBefore;
+        battleResult.card = bestCard;
+        battleResult.priority = priority;
+        return battleResult;
+    }
 
-        } else if (A_max_deck >= strHp && H_max_deck <= strAtt) {
-            // BEST POSSIBLE card is P3. Skip P1, P2.
-            bestCard = deckTree.findBestP3(strAtt, strHp);
-            if (bestCard != null) {
-                priority = 3;
-            } else {
-                // P3 failed, try P4
-                bestCard = deckTree.findBestP4_Reverse();
-                if (bestCard != null) priority = 4;
-            }
+    // Counts a priority ruled out by Priority Skipping (once it is reached)
+    private boolean shouldSearch(int priority, boolean possible) {
+        if (EngineStats.ENABLED && !possible) stats.skipped[priority]++;
+        return possible;
+    }
 
-        } else {
-            // A P1 card *might* exist (A_max >= strHp && H_max > strAtt).
-            // We must run the full priority search.
-            bestCard = deckTree.findBestP1(strAtt, strHp);
-            if (bestCard != null) {
-                priority = 1;
-            } else {
-                bestCard = deckTree.findBestP2_Reverse(strAtt, strHp);
-                if (bestCard != null) {
-                    priority = 2;
-                } else {
-                    bestCard = deckTree.findBestP3(strAtt, strHp);
-                    if (bestCard != null) {
-                        priority = 3;
-                    } else {
-                        bestCard = deckTree.findBestP4_Reverse();
-                        if (bestCard != null) {
-                            priority = 4;
-                        }
-                    }
-                }
+    /**
+     * Finds the best card of one priority and removes it from the deck,
+     * either in one fused descent or as search + delete().
+     */
+    private Card takeBest(int priority, int strAtt, int strHp) {
+        long visitsBefore = EngineStats.ENABLED ? deckTree.getNodesVisited() : 0;
+        Card card;
+        if (fusedRemoval) {
+            card = deckTree.removeBest(priority, strAtt, strHp);
+            if (card != null) {
+                deckCount--;
+                if (EngineStats.ENABLED) stats.deckDeletes++;
             }
+        } else {
+            card = deckTree.findBest(priority, strAtt, strHp);
+            if (card != null) this.remove(card);
         }
-        // --- END Priority Skipping ---
-
-        if (bestCard != null) {
-            this.remove(bestCard);
+        if (EngineStats.ENABLED) {
+            stats.searches[priority]++;
+            stats.searchNodes[priority] += deckTree.getNodesVisited() - visitsBefore;
+            if (card != null) stats.found[priority]++;
         }
-        return new BattleResult(bestCard, priority);
+        return card;
     }
 
     /**
@@ -296,58 +528,103 @@ public class CardDatabase {
         Card stolenCard = deckTree.findForSteal(attLimit, hpLimit);
         if (stolenCard != null) {
             this.remove(stolenCard);
+            deckTree.release(stolenCard);
         }
         return stolenCard;
     }
 
+    /**
+     * Removes every deck card with A_cur > attLimit and H_cur > hpLimit
+     * (steal_all), in the order repeated steal_card commands would take them.
+     */
+    public Card[] findAndRemoveAllStealCards(int attLimit, int hpLimit) {
+        Card[] stolenCards = deckTree.removeAllForSteal(attLimit, hpLimit);
+        deckCount -= stolenCards.length;
+        if (EngineStats.ENABLED) stats.deckDeletes += stolenCards.length;
+        for (Card card : stolenCards) deckTree.release(card);
+        return stolenCards;
+    }
+
+    /**
+     * Writes the discard counter, the deck and the discard pile, each pile
+     * in its tree order (see Checkpoint).
+     */
+    public void writeCheckpoint(DataOutputStream out) throws IOException {
+        out.writeLong(discardTimeCounter);
+        Card[] deck = deckTree.toSortedArray();
+        Checkpoint.writeCards(out, deck, deck.length);
+        Card[] discard = discardTree.toSortedArray();
+        Checkpoint.writeCards(out, discard, discard.length);
+    }
+
+    /**
+     * Replaces the deck and the discard pile with those of a checkpoint.
+     * The whole snapshot is read and checked against the deck index before
+     * anything changes, so a file that cannot be read or holds values the
+     * index cannot store (a pre-scanned offline deck) leaves the database
+     * as it was.
+     */
+    public void readCheckpoint(DataInputStream in) throws IOException {
+        long savedDiscardTimeCounter = in.readLong();
+        Card[] deck = Checkpoint.readCards(in);
+        Card[] discard = Checkpoint.readCards(in);
+        for (Card card : deck) checkFits(card, card.A_cur, card.H_cur);
+        for (Card card : discard) checkFits(card, card.A_base, card.H_base); // A revive never exceeds the base values
+
+        for (Card card : deckTree.removeAllForSteal(0, 0)) deckTree.release(card);
+        deckTree.loadSorted(deck, deck.length);
+        discardTree.build(discard);
+        this.deckCount = deck.length;
+        this.discardCount = discard.length;
+        this.discardTimeCounter = savedDiscardTimeCounter;
+    }
+
+    private void checkFits(Card card, int attack, int health) throws IOException {
+        if (!deckTree.accepts(attack, health)) {
+            throw new IOException("card " + card.name + " (" + attack + ", " + health + ") is outside the deck's value range");
+        }
+    }
+
     /**
      * Implements the Type-2 Healing Phase.
      * @return The number of cards that were fully revived.
      */
     public int healCards(int healPool, long baseEntryTimeCounter) {
         if (healPool <= 0 || discardCount == 0) return 0;
-        int cardsRevivedCount = 0;
         long currentEntryTime = baseEntryTimeCounter;
+        if (EngineStats.ENABLED) stats.healCalls++;
 
-        while (healPool > 0 && discardCount > 0) {
-            // Find largest HMissing <= healPool (from DESC tree)
-            Card cardToRevive = discardTreeDesc.findRevivable(healPool);
-            if (cardToRevive == null) break; // No card can be fully revived
-
-            int cost = cardToRevive.getHMissing();
-            // findRevivable already guarantees cost <= healPool, but we double check
-            if(cost > healPool) break;
+        // P1/P2: carve every fully revivable card out of the discard tree at once
+        revivedCount = 0;
+        healPool = discardTree.carveRevivable(healPool);
+        int cardsRevivedCount = revivedCount;
 
-            healPool -= cost;
-            cardsRevivedCount++;
-
-            // Remove from *both* discard trees
-            discardTreeDesc.delete(cardToRevive);
-            discardTreeAsc.delete(cardToRevive);
-            discardCount--;
-
-            // Revive and add back to deck
+        for (int i = 0; i < cardsRevivedCount; i++) {
+            Card cardToRevive = revived[i];
             cardToRevive.applyFullRevive();
             cardToRevive.entryTime = currentEntryTime++;
-            this.insert(cardToRevive);
         }
+        discardCount -= cardsRevivedCount;
+        if (EngineStats.ENABLED) stats.fullRevives += cardsRevivedCount;
+
+        // Add them back to the deck as one batch
+        this.insertAll(revived, cardsRevivedCount);
+        for (int i = 0; i < cardsRevivedCount; i++) revived[i] = null;
 
         // P3: Partial heal
         if (healPool > 0 && discardCount > 0) {
-            // Find smallest HMissing (from ASC tree)
-            Card cardToPartial = discardTreeAsc.findMin();
+            // Find smallest HMissing (earliest discardTime)
+            Card cardToPartial = discardTree.findMin();
             if (cardToPartial != null) {
-                // Remove from *both* discard trees
-                discardTreeDesc.delete(cardToPartial);
-                discardTreeAsc.delete(cardToPartial);
+                discardTree.delete(cardToPartial);
 
                 // Apply partial heal
                 cardToPartial.applyPartialRevive(healPool);
+                if (EngineStats.ENABLED) stats.partialHeals++;
                 cardToPartial.discardTime = discardTimeCounter++; // Update discard time
 
-                // Re-insert into *both* discard trees with updated stats
-                discardTreeDesc.insert(cardToPartial);
-                discardTreeAsc.insert(cardToPartial);
+                // Re-insert with updated stats
+                discardTree.insert(cardToPartial);
             }
         }
         return cardsRevivedCount;
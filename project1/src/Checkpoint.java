@@ -0,0 +1,104 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: Checkpoint.java ---
+ * (Binary game snapshot for the "checkpoint <file>" / "restore <file>"
+ *  commands and Main's --restore flag)
+ * (Cards are written in tree order, so a restore rebuilds every tree
+ *  bottom-up in linear time instead of replaying the command log)
+ * ======================================================================
+ *
+ * Layout (big-endian, DataOutputStream):
+ *   int  magic "NPCK", int version
+ *   long entryTimeCounter, int survivorScore, int strangerScore     (Game)
+ *   long discardTimeCounter                                          (CardDatabase)
+ *   int  deck count,    then the deck cards in (A_cur, H_cur, entryTime) order
+ *   int  discard count, then the discard cards in (HMissing, discardTime) order
+ * Card record: int name length, the UTF-8 name bytes, 8 ints (A_init, H_init,
+ * A_base, H_base, A_cur, H_cur, A_cur_before_damage, revival_progress) and
+ * 2 longs (entryTime, discardTime).
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x4E50434B; // "NPCK"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // --- Opens a checkpoint file for writing and writes the header ---
+    public static DataOutputStream create(String path) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(path), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        return out;
+    }
+
+    // --- Opens a checkpoint file for reading and checks the header ---
+    public static DataInputStream open(String path) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(path), BUFFER_SIZE));
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Not a Nightpass checkpoint: " + path);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    public static void writeCards(DataOutputStream out, Card[] cards, int count) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) writeCard(out, cards[i]);
+    }
+
+    public static Card[] readCards(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt checkpoint: negative card count");
+        Card[] cards = new Card[count];
+        for (int i = 0; i < count; i++) cards[i] = readCard(in);
+        return cards;
+    }
+
+    private static void writeCard(DataOutputStream out, Card card) throws IOException {
+        out.writeInt(card.nameBytes.length);
+        out.write(card.nameBytes);
+        out.writeInt(card.A_init);
+        out.writeInt(card.H_init);
+        out.writeInt(card.A_base);
+        out.writeInt(card.H_base);
+        out.writeInt(card.A_cur);
+        out.writeInt(card.H_cur);
+        out.writeInt(card.A_cur_before_damage);
+        out.writeInt(card.revival_progress);
+        out.writeLong(card.entryTime);
+        out.writeLong(card.discardTime);
+    }
+
+    private static Card readCard(DataInputStream in) throws IOException {
+        int nameLength = in.readInt();
+        if (nameLength < 0) throw new IOException("Corrupt checkpoint: negative name length");
+        byte[] nameBytes = new byte[nameLength];
+        in.readFully(nameBytes);
+        Card card = new Card(nameBytes);
+        card.A_init = in.readInt();
+        card.H_init = in.readInt();
+        card.A_base = in.readInt();
+        card.H_base = in.readInt();
+        card.A_cur = in.readInt();
+        card.H_cur = in.readInt();
+        card.A_cur_before_damage = in.readInt();
+        card.revival_progress = in.readInt();
+        card.entryTime = in.readLong();
+        card.discardTime = in.readLong();
+        return card;
+    }
+}
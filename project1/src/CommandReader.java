@@ -0,0 +1,320 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: CommandReader.java ---
+ * (Memory-mapped tokenizer for the Nightpass command file)
+ * (Ints are parsed straight from the mapped bytes; the card name of a
+ *  draw_card is the only object ever allocated per command)
+ * ======================================================================
+ */
+public class CommandReader implements Closeable {
+
+    // --- Command codes returned by next() ---
+    public static final int EOF = -1;
+    public static final int UNKNOWN = 0;
+    public static final int DRAW_CARD = 1;
+    public static final int BATTLE = 2;
+    public static final int STEAL_CARD = 3;
+    public static final int DECK_COUNT = 4;
+    public static final int DISCARD_PILE_COUNT = 5;
+    public static final int FIND_WINNING = 6;
+    public static final int ENGINE_STATS = 7;
+    public static final int COUNT_CANDIDATES = 8;
+    public static final int STEAL_ALL = 9;
+    public static final int CHECKPOINT = 10;
+    public static final int RESTORE = 11;
+
+    private static final byte[] W_DRAW_CARD = ascii("draw_card");
+    private static final byte[] W_BATTLE = ascii("battle");
+    private static final byte[] W_STEAL_CARD = ascii("steal_card");
+    private static final byte[] W_DECK_COUNT = ascii("deck_count");
+    private static final byte[] W_DISCARD_PILE_COUNT = ascii("discard_pile_count");
+    private static final byte[] W_FIND_WINNING = ascii("find_winning");
+    private static final byte[] W_ENGINE_STATS = ascii("engine_stats");
+    private static final byte[] W_COUNT_CANDIDATES = ascii("count_candidates");
+    private static final byte[] W_STEAL_ALL = ascii("steal_all");
+    private static final byte[] W_CHECKPOINT = ascii("checkpoint");
+    private static final byte[] W_RESTORE = ascii("restore");
+
+    // Files larger than this are mapped one window at a time
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // --- Arguments of the last command ---
+    public String name; // draw_card: card name | checkpoint, restore: file path (null when names are skipped)
+    public int arg1, arg2, arg3; // draw_card: A H | battle: att hp heal | steal_card, steal_all, count_candidates: att hp
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final boolean readNames;
+
+    // --- Mapped window of the file ---
+    private MappedByteBuffer window;
+    private long windowEnd; // File offset just past the current window
+
+    // --- Bytes copied out of the window in bulk (parsing a heap array avoids
+    // --- a bounds-checked MappedByteBuffer.get() per byte) ---
+    private byte[] data = new byte[CHUNK_SIZE];
+    private int pos; // Read position inside data
+    private int len; // Valid bytes in data
+    private long consumed; // File offset of data[0]
+
+    public CommandReader(String path) throws IOException {
+        this(path, true);
+    }
+
+    /**
+     * @param readNames false to skip building card names (e.g. for a pre-scan)
+     */
+    public CommandReader(String path, boolean readNames) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        this.channel = file.getChannel();
+        this.fileSize = channel.size();
+        this.readNames = readNames;
+        mapWindow(0);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void mapWindow(long offset) throws IOException {
+        long size = Math.min(WINDOW_SIZE, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowEnd = offset + size;
+    }
+
+    /**
+     * Keeps the unread bytes and appends more from the mapped file.
+     * @return false if the file is exhausted
+     */
+    private boolean fill() throws IOException {
+        int keep = len - pos;
+        if (keep == data.length) { // A single line fills the whole array
+            byte[] bigger = new byte[data.length * 2];
+            System.arraycopy(data, pos, bigger, 0, keep);
+            data = bigger;
+        } else {
+            System.arraycopy(data, pos, data, 0, keep);
+        }
+        consumed += pos;
+        pos = 0;
+        len = keep;
+
+        boolean added = false;
+        while (len < data.length) {
+            if (!window.hasRemaining()) {
+                if (windowEnd >= fileSize) break;
+                mapWindow(windowEnd);
+            }
+            int n = Math.min(data.length - len, window.remaining());
+            window.get(data, len, n);
+            len += n;
+            added = true;
+        }
+        return added;
+    }
+
+    public long bytesRead() { return consumed + pos; }
+
+    /**
+     * Reads the next non-empty line.
+     * @return one of the command codes, or EOF
+     */
+    public int next() throws IOException {
+        while (true) {
+            // Skip blank lines (LF or CRLF)
+            while (pos < len && (data[pos] == '\n' || data[pos] == '\r')) pos++;
+            if (pos == len) {
+                if (!fill()) return EOF;
+                continue;
+            }
+
+            int eol = pos;
+            while (eol < len && data[eol] != '\n') eol++;
+            if (eol == len && fill()) continue; // Line not complete yet, rescan it
+
+            int command = parseLine(pos, eol);
+            pos = (eol < len) ? eol + 1 : eol;
+            return command;
+        }
+    }
+
+    /**
+     * Pre-scan variant of next(): skips ahead to the next draw_card line and reads
+     * only its two ints (arg1, arg2; name is not set). Other lines are stepped over
+     * without being tokenized.
+     * @return DRAW_CARD, or EOF
+     */
+    public int nextDrawCard() throws IOException {
+        while (true) {
+            while (pos < len && (data[pos] == '\n' || data[pos] == '\r')) pos++;
+            if (pos == len) {
+                if (!fill()) return EOF;
+                continue;
+            }
+
+            int eol = pos;
+            while (eol < len && data[eol] != '\n') eol++;
+            if (eol == len && fill()) continue; // Line not complete yet, rescan it
+
+            int start = pos;
+            pos = (eol < len) ? eol + 1 : eol;
+            int wordEnd = start + W_DRAW_CARD.length;
+            if (wordEnd <= eol && (wordEnd == eol || isSpace(data[wordEnd]))
+                    && matches(start, W_DRAW_CARD.length, W_DRAW_CARD)) {
+                cursor = wordEnd;
+                lineEnd = eol;
+                skipWord();
+                arg1 = readInt();
+                arg2 = readInt();
+                return DRAW_CARD;
+            }
+        }
+    }
+
+    // --- Line parsing (bytes [start, end), end excludes '\n') ---
+
+    private int cursor; // Shared by the token helpers below
+    private int lineEnd;
+
+    private int parseLine(int start, int end) {
+        cursor = start;
+        lineEnd = end;
+        int wordStart = cursor;
+        while (cursor < lineEnd && !isSpace(data[cursor])) cursor++;
+        int wordLen = cursor - wordStart;
+
+        if (matches(wordStart, wordLen, W_DRAW_CARD)) {
+            name = readNames ? readWord() : skipWord();
+            arg1 = readInt();
+            arg2 = readInt();
+            return DRAW_CARD;
+        }
+        if (matches(wordStart, wordLen, W_BATTLE)) {
+            arg1 = readInt();
+            arg2 = readInt();
+            arg3 = readInt();
+            return BATTLE;
+        }
+        if (matches(wordStart, wordLen, W_STEAL_CARD)) {
+            arg1 = readInt();
+            arg2 = readInt();
+            return STEAL_CARD;
+        }
+        if (matches(wordStart, wordLen, W_DECK_COUNT)) return DECK_COUNT;
+        if (matches(wordStart, wordLen, W_DISCARD_PILE_COUNT)) return DISCARD_PILE_COUNT;
+        if (matches(wordStart, wordLen, W_FIND_WINNING)) return FIND_WINNING;
+        if (matches(wordStart, wordLen, W_ENGINE_STATS)) return ENGINE_STATS;
+        if (matches(wordStart, wordLen, W_COUNT_CANDIDATES)) {
+            arg1 = readInt();
+            arg2 = readInt();
+            return COUNT_CANDIDATES;
+        }
+        if (matches(wordStart, wordLen, W_STEAL_ALL)) {
+            arg1 = readInt();
+            arg2 = readInt();
+            return STEAL_ALL;
+        }
+        if (matches(wordStart, wordLen, W_CHECKPOINT)) {
+            name = readNames ? readWord() : skipWord();
+            return CHECKPOINT;
+        }
+        if (matches(wordStart, wordLen, W_RESTORE)) {
+            name = readNames ? readWord() : skipWord();
+            return RESTORE;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private boolean matches(int start, int wordLen, byte[] word) {
+        if (wordLen != word.length) return false;
+        for (int i = 0; i < wordLen; i++) {
+            if (data[start + i] != word[i]) return false;
+        }
+        return true;
+    }
+
+    // (The helpers below work on locals and store cursor once, keeping the loops in registers)
+
+    private int skipSpaces(int c) {
+        byte[] d = data;
+        int end = lineEnd;
+        while (c < end && isSpace(d[c])) c++;
+        return c;
+    }
+
+    private String skipWord() {
+        byte[] d = data;
+        int c = skipSpaces(cursor), end = lineEnd;
+        while (c < end && !isSpace(d[c])) c++;
+        cursor = c;
+        return null;
+    }
+
+    private String readWord() {
+        byte[] d = data;
+        int start = skipSpaces(cursor), c = start, end = lineEnd;
+        while (c < end && !isSpace(d[c])) c++;
+        cursor = c;
+        return new String(d, start, c - start, StandardCharsets.UTF_8);
+    }
+
+    private int readInt() {
+        byte[] d = data;
+        int c = skipSpaces(cursor), end = lineEnd;
+        boolean negative = false;
+        if (c < end && d[c] == '-') {
+            negative = true;
+            c++;
+        }
+        int value = 0;
+        while (c < end) {
+            int digit = d[c] - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            c++;
+        }
+        cursor = c;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close(); // Also closes the channel
+    }
+
+    /**
+     * Parse-only throughput check: java CommandReader <input_file>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java CommandReader <input_file>");
+            return;
+        }
+        long start = System.nanoTime();
+        long commands = 0, checksum = 0;
+        try (CommandReader reader = new CommandReader(args[0])) {
+            int command;
+            while ((command = reader.next()) != EOF) {
+                commands++;
+                checksum += command + reader.arg1 + reader.arg2 + reader.arg3;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = reader.fileSize / (1024.0 * 1024.0);
+            System.out.printf("%d commands, %.1f MB in %.3f s: %.1f MB/s (checksum %d)%n",
+                    commands, megabytes, seconds, megabytes / seconds, checksum);
+        }
+    }
+}
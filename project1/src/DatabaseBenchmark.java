@@ -0,0 +1,299 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.SplittableRandom;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: DatabaseBenchmark.java ---
+ * (Micro-benchmarks for the CardDatabase hot paths, JMH-style: warmup and
+ *  measured iterations per (benchmark, deck size, value distribution),
+ *  reporting ops/sec and bytes allocated per op)
+ * ======================================================================
+ *
+ * Usage: java DatabaseBenchmark [--bench insert,battleP1,...] [--sizes 1000,100000]
+ *                               [--dist uniform|narrow] [--deck tree|array|offheap|segment|bitmap|persistent]
+ *                               [--warmup N] [--iterations N] [--millis M] [--small-set N]
+ *
+ * Benchmarks (only the named call is timed; the deck is restored outside the timer):
+ *   insert    CardDatabase.insert of a fresh card
+ *   delete    CardDatabase.remove of a card in the deck (put back afterwards)
+ *   battleP1  findAndRemoveBestCard where priority 1 nearly always hits
+ *   battleP2  ... where no card reaches A_cur >= strHp (priority 2)
+ *   battleP3  ... where no card survives (priority 3)
+ *   battleP4  ... where only the fallback applies (priority 4)
+ *   steal     findAndRemoveStealCard with random limits (may find nothing)
+ *   heal      healCards on a discard pile of the given size
+ *   cycle     the Game.battle loop: battle, discard or re-insert, heal (every
+ *             card goes back to the deck between batches)
+ *
+ * Distributions: uniform draws A/H from [1, 100000]; narrow from [1, 100]
+ * (many equal keys, large inner trees). Allocation comes from
+ * com.sun.management.ThreadMXBean and is reported as -1 where unsupported.
+ */
+public class DatabaseBenchmark {
+
+    private static final String[] ALL_BENCHMARKS =
+            {"insert", "delete", "battleP1", "battleP2", "battleP3", "battleP4", "steal", "heal", "cycle"};
+    private static final int MAX_BATCH = 1024;
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) return null;
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+    }
+
+    private static long allocatedBytes() {
+        return (ALLOCATION == null) ? 0 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) {
+        String[] benchmarks = ALL_BENCHMARKS;
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+        String dist = "uniform";
+        String deck = "tree";
+        int warmup = 3, iterations = 5, millis = 500;
+        int smallSet = AttackTree.DEFAULT_SMALL_SET_THRESHOLD;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--bench") && i + 1 < args.length) benchmarks = args[++i].split(",");
+            else if (args[i].equals("--sizes") && i + 1 < args.length) sizes = parseSizes(args[++i]);
+            else if (args[i].equals("--dist") && i + 1 < args.length) dist = args[++i];
+            else if (args[i].equals("--deck") && i + 1 < args.length) deck = args[++i];
+            else if (args[i].equals("--warmup") && i + 1 < args.length) warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--iterations") && i + 1 < args.length) iterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--millis") && i + 1 < args.length) millis = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--small-set") && i + 1 < args.length) smallSet = Integer.parseInt(args[++i]);
+        }
+        int maxValue = dist.equals("narrow") ? 100 : 100_000;
+
+        System.out.printf("%-10s %10s %-8s %-10s %14s %14s %10s%n",
+                "benchmark", "size", "dist", "deck", "ops/s", "(min-max)", "B/op");
+        for (String bench : benchmarks) {
+            for (int size : sizes) {
+                Workload w = new Workload(bench, newDatabase(deck, maxValue, smallSet), size, maxValue);
+                run(w, warmup, iterations, millis, deck, dist);
+            }
+        }
+    }
+
+    private static int[] parseSizes(String list) {
+        String[] parts = list.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) sizes[i] = (int) Double.parseDouble(parts[i]); // Accepts 1e6
+        return sizes;
+    }
+
+    private static CardDatabase newDatabase(String deck, int maxValue, int smallSet) {
+        switch (deck) {
+            case "array": return new CardDatabase(new ArrayAttackTree());
+            case "offheap": return new CardDatabase(new ArrayAttackTree(new OffHeapCardStore()));
+            case "segment": return new CardDatabase(new SegmentDeckIndex(maxValue, maxValue));
+            case "bitmap": return new CardDatabase(new BitmapAttackTree(maxValue, smallSet));
+            case "persistent": return new PersistentCardDatabase();
+            default: return new CardDatabase(new AttackTree(smallSet));
+        }
+    }
+
+    private static void run(Workload w, int warmup, int iterations, int millis, String deck, String dist) {
+        for (int i = 0; i < warmup; i++) w.iteration(millis);
+        double sum = 0, min = Double.MAX_VALUE, max = 0;
+        long ops = 0, bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            double rate = w.iteration(millis);
+            sum += rate;
+            min = Math.min(min, rate);
+            max = Math.max(max, rate);
+            ops += w.lastOps;
+            bytes += w.lastBytes;
+        }
+        double bytesPerOp = (ALLOCATION == null || ops == 0) ? -1 : (double) bytes / ops;
+        System.out.printf("%-10s %10d %-8s %-10s %14.0f %6.0fk-%5.0fk %10.1f%n",
+                w.bench, w.size, dist, deck, sum / iterations, min / 1000, max / 1000, bytesPerOp);
+    }
+
+    /**
+     * One benchmark on one database: timed batches, each followed by an
+     * untimed step that puts the deck/discard pile back to its start size.
+     */
+    private static class Workload {
+        final String bench;
+        final CardDatabase db;
+        final int size, maxValue;
+        final int batch;
+        final SplittableRandom random = new SplittableRandom(250);
+        long entryTime = 0;
+
+        // --- Per-batch inputs and outputs (filled outside the timer) ---
+        final int[] att = new int[MAX_BATCH];
+        final int[] hp = new int[MAX_BATCH];
+        final int[] heal = new int[MAX_BATCH];
+        final Card[] cards = new Card[MAX_BATCH];
+        final Card[] live; // delete only: every deck card, the batch's picks swapped to the end
+        int taken;
+
+        // --- Result of the last iteration ---
+        long lastOps, lastBytes;
+
+        Workload(String bench, CardDatabase db, int size, int maxValue) {
+            this.bench = bench;
+            this.db = db;
+            this.size = size;
+            this.maxValue = maxValue;
+            this.batch = Math.max(1, Math.min(MAX_BATCH, size / 10));
+            this.live = bench.equals("delete") ? new Card[size] : null;
+            for (int i = 0; i < size; i++) {
+                Card card = newCard();
+                if (bench.equals("heal")) db.addToDiscard(card);
+                else db.insert(card);
+                if (live != null) live[i] = card;
+            }
+        }
+
+        Card newCard() {
+            int attack = 1 + random.nextInt(maxValue);
+            int health = 1 + random.nextInt(maxValue);
+            return new Card("c", attack, health, entryTime++);
+        }
+
+        /**
+         * Runs batches for about millis ms of timed work.
+         * @return ops/sec of the timed sections
+         */
+        double iteration(int millis) {
+            long budget = millis * 1_000_000L;
+            long timed = 0, ops = 0, bytes = 0;
+            while (timed < budget) {
+                prepare();
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                timedBatch();
+                timed += System.nanoTime() - start;
+                bytes += allocatedBytes() - bytesBefore;
+                ops += batch;
+                restore();
+            }
+            lastOps = ops;
+            lastBytes = bytes;
+            return ops / (timed / 1e9);
+        }
+
+        // --- Stranger values for each regime (cards are uniform in [1, maxValue]) ---
+        private void prepare() {
+            int half = Math.max(1, maxValue / 2);
+            for (int i = 0; i < batch; i++) {
+                switch (bench) {
+                    case "insert":
+                        cards[i] = newCard();
+                        break;
+                    case "delete": { // Distinct cards: pick among those not picked yet
+                        int j = random.nextInt(size - i);
+                        Card card = live[j];
+                        live[j] = live[size - 1 - i];
+                        live[size - 1 - i] = card;
+                        cards[i] = card;
+                        break;
+                    }
+                    case "battleP1": // Some card has A_cur >= strHp and H_cur > strAtt
+                        att[i] = 1 + random.nextInt(half);
+                        hp[i] = 1 + random.nextInt(half);
+                        break;
+                    case "battleP2": // No A_cur reaches strHp
+                        att[i] = 1 + random.nextInt(half);
+                        hp[i] = maxValue + 1;
+                        break;
+                    case "battleP3": // No H_cur exceeds strAtt
+                        att[i] = maxValue;
+                        hp[i] = 1 + random.nextInt(half);
+                        break;
+                    case "battleP4":
+                        att[i] = maxValue;
+                        hp[i] = maxValue + 1;
+                        break;
+                    case "steal":
+                        att[i] = random.nextInt(maxValue);
+                        hp[i] = random.nextInt(maxValue);
+                        break;
+                    case "heal":
+                        hp[i] = 1 + random.nextInt(maxValue); // Heal pool
+                        break;
+                    case "cycle": // Mixed priorities; about half the battles carry a heal pool
+                        att[i] = 1 + random.nextInt(maxValue);
+                        hp[i] = 1 + random.nextInt(maxValue);
+                        heal[i] = random.nextBoolean() ? random.nextInt(maxValue) : 0;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown benchmark: " + bench);
+                }
+            }
+        }
+
+        private void timedBatch() {
+            CardDatabase db = this.db;
+            taken = 0;
+            switch (bench) {
+                case "insert":
+                    for (int i = 0; i < batch; i++) db.insert(cards[i]);
+                    break;
+                case "delete":
+                    for (int i = 0; i < batch; i++) db.remove(cards[i]);
+                    break;
+                case "steal":
+                    for (int i = 0; i < batch; i++) {
+                        Card card = db.findAndRemoveStealCard(att[i], hp[i]);
+                        if (card != null) cards[taken++] = card;
+                    }
+                    break;
+                case "heal":
+                    for (int i = 0; i < batch; i++) entryTime += db.healCards(hp[i], entryTime);
+                    break;
+                case "cycle": // Same order as Game.battle()
+                    for (int i = 0; i < batch; i++) {
+                        Card card = db.findAndRemoveBestCard(att[i], hp[i]).card;
+                        boolean died = card != null && card.takeDamage(att[i]);
+                        if (died) db.addToDiscard(card);
+                        if (heal[i] > 0) entryTime += db.healCards(heal[i], entryTime);
+                        if (card != null && !died) {
+                            card.entryTime = entryTime++;
+                            db.insert(card);
+                        }
+                    }
+                    break;
+                default: // battleP1-P4
+                    for (int i = 0; i < batch; i++) {
+                        Card card = db.findAndRemoveBestCard(att[i], hp[i]).card;
+                        if (card != null) cards[taken++] = card;
+                    }
+                    break;
+            }
+        }
+
+        private void restore() {
+            switch (bench) {
+                case "insert":
+                    for (int i = 0; i < batch; i++) db.remove(cards[i]);
+                    break;
+                case "delete":
+                    for (int i = 0; i < batch; i++) db.insert(cards[i]);
+                    break;
+                case "heal": // Send the revived cards back to the discard pile
+                    Card card;
+                    while ((card = db.findAndRemoveStealCard(0, 0)) != null) db.addToDiscard(card);
+                    break;
+                case "cycle": // Revive the whole discard pile
+                    if (db.getDiscardCount() > 0) entryTime += db.healCards(Integer.MAX_VALUE, entryTime);
+                    break;
+                default:
+                    for (int i = 0; i < taken; i++) {
+                        cards[i].entryTime = entryTime++;
+                        db.insert(cards[i]);
+                    }
+                    break;
+            }
+            for (int i = 0; i < batch; i++) cards[i] = null;
+        }
+    }
+}
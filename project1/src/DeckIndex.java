@@ -0,0 +1,112 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: DeckIndex.java ---
+ * (The operations CardDatabase needs from its deck tree)
+ * (Implemented by AttackTree (object nodes), ArrayAttackTree (array pool),
+ *  BitmapAttackTree (64-ary attack bitmap), SegmentDeckIndex (offline mode)
+ *  and PersistentDeck (path copying))
+ * ======================================================================
+ */
+public interface DeckIndex {
+
+    void insert(Card card);
+    void delete(Card card);
+
+    // --- Inserts the first count cards of the array (may reorder the array) ---
+    default void insertAll(Card[] cards, int count) {
+        for (int i = 0; i < count; i++) insert(cards[i]);
+    }
+
+    // --- Fills an empty deck from cards[0, count), already in (A_cur, H_cur, entryTime)
+    // --- order (checkpoint restore); AttackTree builds it bottom-up in linear time ---
+    default void loadSorted(Card[] cards, int count) {
+        insertAll(cards, count);
+    }
+
+    /**
+     * The whole deck in (A_cur, H_cur, entryTime) order (checkpoint). This
+     * default takes every card out in steal order, which is that order, and
+     * puts them back; AttackTree walks its trees instead.
+     */
+    default Card[] toSortedArray() {
+        Card[] cards = removeAllForSteal(0, 0); // Deck cards always have A_cur, H_cur >= 1
+        insertAll(cards.clone(), cards.length);
+        return cards;
+    }
+
+    // --- O(1) augmented values of the whole deck (used for Priority Skipping) ---
+    int getDeckMaxAttack();
+    int getDeckMaxHealth();
+
+    // --- Priority searches (same contracts as AttackTree) ---
+    Card findBestP1(int strAtt, int strHp);          // min A_cur >= strHp, min H_cur > strAtt
+    Card findBestP2_Reverse(int strAtt, int strHp);  // max A_cur < strHp, min H_cur > strAtt
+    Card findBestP3(int strAtt, int strHp);          // min A_cur >= strHp, min H_cur <= strAtt
+    Card findBestP4_Reverse();                       // max A_cur, min H_cur
+    Card findForSteal(int attLimit, int hpLimit);    // min A_cur > attLimit, min H_cur > hpLimit
+
+    // --- Dispatch to the search of the given battle priority (1-4) ---
+    default Card findBest(int priority, int strAtt, int strHp) {
+        switch (priority) {
+            case 1: return findBestP1(strAtt, strHp);
+            case 2: return findBestP2_Reverse(strAtt, strHp);
+            case 3: return findBestP3(strAtt, strHp);
+            case 4: return findBestP4_Reverse();
+            default: return null;
+        }
+    }
+
+    /**
+     * Finds the best card of the given priority and removes it from the deck.
+     * This default is the two-pass version (search, then delete); AttackTree
+     * overrides it with a single fused descent.
+     */
+    default Card removeBest(int priority, int strAtt, int strHp) {
+        Card card = findBest(priority, strAtt, strHp);
+        if (card != null) delete(card);
+        return card;
+    }
+
+    /**
+     * Removes every card with A_cur > attLimit and H_cur > hpLimit and returns
+     * them in steal order (A_cur, H_cur, entryTime ascending). This default
+     * repeats findForSteal() + delete(); AttackTree splits and joins instead.
+     */
+    default Card[] removeAllForSteal(int attLimit, int hpLimit) {
+        Card[] out = new Card[16];
+        int k = 0;
+        Card card;
+        while ((card = findForSteal(attLimit, hpLimit)) != null) {
+            delete(card);
+            if (k == out.length) {
+                Card[] bigger = new Card[k * 2];
+                System.arraycopy(out, 0, bigger, 0, k);
+                out = bigger;
+            }
+            out[k++] = card;
+        }
+        Card[] result = new Card[k];
+        System.arraycopy(out, 0, result, 0, k);
+        return result;
+    }
+
+    // --- Whether a card with these A_cur/H_cur values can be stored (a checkpoint
+    // --- restore checks first); only SegmentDeckIndex has a fixed value range ---
+    default boolean accepts(int attack, int health) { return true; }
+
+    // --- The card (already removed) leaves the game for good, e.g. stolen ---
+    default void release(Card card) {}
+
+    // --- Number of deck cards the given battle priority (1-4) would choose from,
+    // --- i.e. the P1/P2/P3/P4 quadrant around (strHp, strAtt); -1 if not supported ---
+    default int countCandidates(int priority, int strAtt, int strHp) { return -1; }
+
+    // --- Nodes touched by searches/deletions so far (0 if not instrumented) ---
+    default long getNodesVisited() { return 0; }
+
+    // --- Part of getNodesVisited() spent in inner (health) trees ---
+    default long getInnerProbes() { return 0; }
+
+    // --- AVL rotations so far (only counted with EngineStats.ENABLED) ---
+    default long getRotations() { return 0; }
+}
@@ -0,0 +1,62 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: EngineStats.java ---
+ * (Search-cost counters of one CardDatabase: priority searches, Priority
+ *  Skipping hits, deck updates and the revival loop)
+ * (ENABLED is a static final read once at class load, so every
+ *  "if (EngineStats.ENABLED) ..." is removed by the JIT when it is off)
+ * ======================================================================
+ *
+ * Enable with: java -Dnightpass.stats=true Main <input_file> <output_file>
+ * The always-on counters (battles, deck nodes visited, inner probes) are
+ * reported either way.
+ */
+public class EngineStats {
+
+    public static final boolean ENABLED = Boolean.getBoolean("nightpass.stats");
+
+    // --- Per battle priority (index 1-4) ---
+    final long[] searches = new long[5];     // takeBest() calls
+    final long[] found = new long[5];        // ... that returned a card
+    final long[] searchNodes = new long[5];  // Deck nodes visited by those calls
+    final long[] skipped = new long[5];      // Reached, but ruled out by A_max/H_max
+
+    // --- Deck updates ---
+    long deckInserts = 0;
+    long deckDeletes = 0;
+
+    // --- Healing phase ---
+    long healCalls = 0;
+    long revivalIterations = 0; // Greedy picks in the full-revive loop
+    long fullRevives = 0;
+    long partialHeals = 0;
+
+    /**
+     * Multi-line summary (each line ends with '\n').
+     */
+    public String report(DeckIndex deck, long battles, long battleNodesVisited) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Engine stats: %d battles, %d deck nodes visited (%.2f per battle), %d inner HealthTree probes%n",
+                battles, battleNodesVisited, ratio(battleNodesVisited, battles), deck.getInnerProbes()));
+        if (!ENABLED) {
+            sb.append("  Detailed counters are off (run with -Dnightpass.stats=true)\n");
+            return sb.toString();
+        }
+        for (int p = 1; p <= 4; p++) {
+            long reached = searches[p] + skipped[p];
+            sb.append(String.format("  P%d: %d searches, %d found, %.2f nodes/search, %d skipped (%.1f%% of %d reached)%n",
+                    p, searches[p], found[p], ratio(searchNodes[p], searches[p]),
+                    skipped[p], 100.0 * ratio(skipped[p], reached), reached));
+        }
+        long updates = deckInserts + deckDeletes;
+        sb.append(String.format("  Deck: %d inserts, %d deletes, %d rotations (%.3f per update)%n",
+                deckInserts, deckDeletes, deck.getRotations(), ratio(deck.getRotations(), updates)));
+        sb.append(String.format("  Heal: %d calls, %d revival loop iterations, %d full revives, %d partial heals%n",
+                healCalls, revivalIterations, fullRevives, partialHeals));
+        return sb.toString();
+    }
+
+    private static double ratio(long a, long b) {
+        return (b == 0) ? 0.0 : (double) a / b;
+    }
+}
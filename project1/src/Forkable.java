@@ -0,0 +1,12 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: Forkable.java ---
+ * (A CardDatabase that can hand out O(1) independent copies for what-if
+ *  play: Game.fork() and MonteCarlo; implemented by PersistentCardDatabase)
+ * ======================================================================
+ */
+public interface Forkable {
+
+    // --- Independent copy: later updates on either side are invisible to the other ---
+    CardDatabase fork();
+}
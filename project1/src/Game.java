@@ -0,0 +1,419 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: Game.java ---
+ * (One self-contained Nightpass game: scores, counters and its own
+ *  CardDatabase, so several games can run in one JVM at the same time)
+ * ======================================================================
+ */
+public class Game {
+
+    // --- Game State ---
+    private long entryTimeCounter = 0;
+    private int survivorScore = 0;
+    private int strangerScore = 0;
+
+    // --- Core Data Structure ---
+    private final CardDatabase cardDatabase;
+
+    // --- Run of consecutive draw_card commands, inserted as one batch before the next other command ---
+    private Card[] pendingDraws = new Card[16];
+    private int pendingCount = 0;
+
+    public Game() {
+        this(new CardDatabase());
+    }
+
+    public Game(CardDatabase cardDatabase) {
+        this.cardDatabase = cardDatabase;
+    }
+
+    public CardDatabase getCardDatabase() { return this.cardDatabase; }
+    public int getSurvivorScore() { return this.survivorScore; }
+    public int getStrangerScore() { return this.strangerScore; }
+
+    /**
+     * O(1) independent copy of this game (scores, counters and database)
+     * for what-if play. Needs a Forkable database, i.e. PersistentCardDatabase.
+     */
+    public Game fork() {
+        if (!(cardDatabase instanceof Forkable)) {
+            throw new IllegalStateException("Only a Forkable database (PersistentCardDatabase) can fork");
+        }
+        flushDraws();
+        Game copy = new Game(((Forkable) cardDatabase).fork());
+        copy.entryTimeCounter = this.entryTimeCounter;
+        copy.survivorScore = this.survivorScore;
+        copy.strangerScore = this.strangerScore;
+        return copy;
+    }
+
+    /**
+     * Writes the whole game state (scores, counters, deck and discard pile)
+     * to a binary checkpoint file (see Checkpoint).
+     */
+    public void checkpoint(String path) throws IOException {
+        flushDraws();
+        try (DataOutputStream out = Checkpoint.create(path)) {
+            out.writeLong(entryTimeCounter);
+            out.writeInt(survivorScore);
+            out.writeInt(strangerScore);
+            cardDatabase.writeCheckpoint(out);
+        }
+    }
+
+    /**
+     * Replaces the whole game state with a checkpoint's. The trees are
+     * rebuilt bottom-up from the sorted card runs, in linear time; a file
+     * that cannot be read leaves the game unchanged.
+     */
+    public void restore(String path) throws IOException {
+        flushDraws();
+        try (DataInputStream in = Checkpoint.open(path)) {
+            long savedEntryTimeCounter = in.readLong();
+            int savedSurvivorScore = in.readInt();
+            int savedStrangerScore = in.readInt();
+            cardDatabase.readCheckpoint(in);
+            this.entryTimeCounter = savedEntryTimeCounter;
+            this.survivorScore = savedSurvivorScore;
+            this.strangerScore = savedStrangerScore;
+        }
+    }
+
+    /**
+     * Picks the deck implementation for one input file
+     * (offline segment trees fall back to the online deck if the pre-scan fails).
+     */
+    public static DeckIndex createDeck(String inputFile, boolean arrayDeck, boolean offline) {
+        return createDeck(inputFile, arrayDeck, offline, false, -1);
+    }
+
+    /**
+     * @param bitmapOuter pre-scan the input and use BitmapAttackTree (64-ary bitmap outer index)
+     * @param smallSetThreshold cards per inner container kept as sorted arrays (negative: the
+     *        deck's own default, AttackTree's or SegmentDeckIndex's DEFAULT_SMALL_SET_THRESHOLD)
+     */
+    public static DeckIndex createDeck(String inputFile, boolean arrayDeck, boolean offline,
+                                       boolean bitmapOuter, int smallSetThreshold) {
+        DeckIndex deck = null;
+        if (offline) {
+            deck = createOfflineDeck(inputFile, (smallSetThreshold < 0)
+                    ? SegmentDeckIndex.DEFAULT_SMALL_SET_THRESHOLD : smallSetThreshold);
+        }
+        if (smallSetThreshold < 0) smallSetThreshold = AttackTree.DEFAULT_SMALL_SET_THRESHOLD;
+        if (deck == null && bitmapOuter) deck = createBitmapDeck(inputFile, smallSetThreshold);
+        if (deck == null) deck = arrayDeck ? new ArrayAttackTree() : new AttackTree(smallSetThreshold);
+        return deck;
+    }
+
+    /**
+     * Plays every command of inputFile, writing results to outputFile.
+     */
+    public void play(String inputFile, String outputFile) throws IOException {
+        try (ResultWriter writer = new ResultWriter(outputFile);
+             CommandReader reader = new CommandReader(inputFile)) {
+            play(reader, writer);
+        }
+    }
+
+    public void play(CommandReader reader, ResultWriter writer) throws IOException {
+        while (step(reader, writer)) {
+            // Every command writes its own output
+        }
+    }
+
+    /**
+     * Reads and plays one command (lets a driver time commands one by one).
+     * @return false once the input is exhausted
+     */
+    public boolean step(CommandReader reader, ResultWriter writer) throws IOException {
+        // Memory-mapped input: blank lines are skipped, ints parsed in place
+        int command = reader.next();
+        if (command != CommandReader.DRAW_CARD) flushDraws(); // Every other command sees the whole deck
+        switch (command) {
+            case CommandReader.DRAW_CARD:
+                handleDrawCard(reader.name, reader.arg1, reader.arg2, writer);
+                break;
+            case CommandReader.BATTLE:
+                handleBattle(reader.arg1, reader.arg2, reader.arg3, writer);
+                break;
+            case CommandReader.STEAL_CARD:
+                handleStealCard(reader.arg1, reader.arg2, writer);
+                break;
+            case CommandReader.DECK_COUNT:
+                writer.write(MSG_DECK_COUNT);
+                writer.writeInt(cardDatabase.getDeckCount());
+                writer.write(NEWLINE);
+                break;
+            case CommandReader.DISCARD_PILE_COUNT:
+                writer.write(MSG_DISCARD_COUNT);
+                writer.writeInt(cardDatabase.getDiscardCount());
+                writer.write(NEWLINE);
+                break;
+            case CommandReader.FIND_WINNING:
+                handleFindWinning(writer);
+                break;
+            case CommandReader.ENGINE_STATS:
+                writer.write(ResultWriter.encode(cardDatabase.statsReport()));
+                break;
+            case CommandReader.STEAL_ALL:
+                handleStealAll(reader.arg1, reader.arg2, writer);
+                break;
+            case CommandReader.COUNT_CANDIDATES:
+                handleCountCandidates(reader.arg1, reader.arg2, writer);
+                break;
+            case CommandReader.CHECKPOINT:
+            case CommandReader.RESTORE:
+                handleCheckpoint(command == CommandReader.CHECKPOINT, reader.name, writer);
+                break;
+        }
+        return command != CommandReader.EOF;
+    }
+
+    // --- Offline mode: bound every A/H value by the input, then use segment trees ---
+    private static final int OFFLINE_MAX_ATTACK = 1 << 22; // Outer tree is dense
+    private static final int OFFLINE_MAX_HEALTH = 1 << 30; // Inner trees are sparse
+
+    /**
+     * Pre-scans the draw_card commands. A_cur never exceeds the drawn attack
+     * and H_cur never exceeds the drawn health, so their maxima bound the
+     * whole game. Returns null (online fallback) if the bounds are too large.
+     */
+    private static DeckIndex createOfflineDeck(String inputFile, int smallSetThreshold) {
+        int[] maxima = scanDrawMaxima(inputFile);
+        if (maxima == null) return null;
+        if (maxima[0] >= OFFLINE_MAX_ATTACK || maxima[1] >= OFFLINE_MAX_HEALTH) {
+            System.err.println("Offline mode: value range too large, using the online deck");
+            return null;
+        }
+        return new SegmentDeckIndex(maxima[0], maxima[1], smallSetThreshold);
+    }
+
+    // Same pre-scan for the bitmap outer index, which only needs the attack bound
+    private static DeckIndex createBitmapDeck(String inputFile, int smallSetThreshold) {
+        int[] maxima = scanDrawMaxima(inputFile);
+        if (maxima == null) return null;
+        if (maxima[0] >= OFFLINE_MAX_ATTACK) {
+            System.err.println("Bitmap outer index: attack range too large, using the AVL outer tree");
+            return null;
+        }
+        return new BitmapAttackTree(maxima[0], smallSetThreshold);
+    }
+
+    // { max drawn attack, max drawn health }, or null if the file cannot be read
+    private static int[] scanDrawMaxima(String inputFile) {
+        int maxAttack = 0, maxHealth = 0;
+        try (CommandReader reader = new CommandReader(inputFile, false)) {
+            while (reader.nextDrawCard() != CommandReader.EOF) {
+                maxAttack = Math.max(maxAttack, reader.arg1);
+                maxHealth = Math.max(maxHealth, reader.arg2);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new int[] {maxAttack, maxHealth};
+    }
+
+    // --- Pre-encoded output fragments ---
+    private static final byte NEWLINE = '\n';
+    private static final byte SPACE = ' ';
+    private static final byte[] MSG_ADDED = ResultWriter.encode("Added ");
+    private static final byte[] MSG_TO_DECK = ResultWriter.encode(" to the deck\n");
+    private static final byte[] MSG_NO_CARD = ResultWriter.encode("No card to play, ");
+    private static final byte[] MSG_REVIVED = ResultWriter.encode(" cards revived\n");
+    private static final byte[] MSG_FOUND = ResultWriter.encode("Found with priority ");
+    private static final byte[] MSG_PLAYS = ResultWriter.encode(", Survivor plays ");
+    private static final byte[] MSG_DISCARDED = ResultWriter.encode(", the played card is discarded, ");
+    private static final byte[] MSG_RETURNED = ResultWriter.encode(", the played card returned to deck, ");
+    private static final byte[] MSG_NO_STEAL = ResultWriter.encode("No card to steal\n");
+    private static final byte[] MSG_STOLE = ResultWriter.encode("The Stranger stole the card: ");
+    private static final byte[] MSG_STOLE_ALL = ResultWriter.encode("The Stranger stole ");
+    private static final byte[] MSG_CARD = ResultWriter.encode(" card:");
+    private static final byte[] MSG_CARDS = ResultWriter.encode(" cards:");
+    private static final byte[] MSG_DECK_COUNT = ResultWriter.encode("Number of cards in the deck: ");
+    private static final byte[] MSG_DISCARD_COUNT = ResultWriter.encode("Number of cards in the discard pile: ");
+    private static final byte[] MSG_SURVIVOR_WINS = ResultWriter.encode("The Survivor, Score: ");
+    private static final byte[] MSG_STRANGER_WINS = ResultWriter.encode("The Stranger, Score: ");
+    private static final byte[] MSG_CANDIDATES = ResultWriter.encode("Candidate cards: ");
+    private static final byte[] MSG_SEP = ResultWriter.encode(", ");
+    private static final byte[][] MSG_P = { // MSG_P[p]: "Pp " for priorities 1-4
+            null, ResultWriter.encode("P1 "), ResultWriter.encode("P2 "), ResultWriter.encode("P3 "), ResultWriter.encode("P4 ")};
+    private static final byte[] MSG_NO_COUNTS = ResultWriter.encode("Candidate counts are not supported by this deck\n");
+    private static final byte[] MSG_CHECKPOINT_SAVED = ResultWriter.encode("Checkpoint saved: ");
+    private static final byte[] MSG_CHECKPOINT_RESTORED = ResultWriter.encode("Checkpoint restored: ");
+    private static final byte[] MSG_CHECKPOINT_UNSUPPORTED =
+            ResultWriter.encode("Checkpoint failed: Checkpoints are not supported on the persistent database\n");
+    private static final byte[] MSG_DECK_CARDS = ResultWriter.encode(" deck cards, ");
+    private static final byte[] MSG_DISCARD_CARDS = ResultWriter.encode(" discard cards\n");
+
+    // --- Command Handlers ---
+
+    private void handleDrawCard(String name, int attack, int health, ResultWriter writer) throws IOException {
+        Card newCard = new Card(name, attack, health, entryTimeCounter++);
+        if (pendingCount == pendingDraws.length) {
+            Card[] bigger = new Card[pendingDraws.length * 2];
+            System.arraycopy(pendingDraws, 0, bigger, 0, pendingCount);
+            pendingDraws = bigger;
+        }
+        pendingDraws[pendingCount++] = newCard;
+
+        writer.write(MSG_ADDED);
+        writer.write(newCard.nameBytes);
+        writer.write(MSG_TO_DECK);
+    }
+
+
+    /**
+     * Inserts the buffered draw_card run. AttackTree sorts a large run and
+     * rebuilds the deck bottom-up in O(n + k) instead of k AVL inserts.
+     */
+    private void flushDraws() {
+        if (pendingCount == 0) return;
+        cardDatabase.insertAll(pendingDraws, pendingCount);
+        if (pendingDraws.length > 4096) pendingDraws = new Card[16]; // Do not pin a long run's array
+        else for (int i = 0; i < pendingCount; i++) pendingDraws[i] = null;
+        pendingCount = 0;
+    }
+
+    // --- Outcome of the last battle() ---
+    private Card playedCard; // null if the deck was empty
+    private int playedPriority;
+    private boolean playedCardDied;
+    private int cardsRevived;
+
+    private void handleBattle(int strangerAttack, int strangerHealth, int healPool, ResultWriter writer) throws IOException {
+        battle(strangerAttack, strangerHealth, healPool);
+        if (playedCard == null) {
+            writer.write(MSG_NO_CARD);
+        } else {
+            writer.write(MSG_FOUND);
+            writer.writeInt(playedPriority);
+            writer.write(MSG_PLAYS);
+            writer.write(playedCard.nameBytes);
+            writer.write(playedCardDied ? MSG_DISCARDED : MSG_RETURNED);
+        }
+        writer.writeInt(cardsRevived);
+        writer.write(MSG_REVIVED);
+    }
+
+    /**
+     * Plays one battle (scoring, discard, healing) without writing output.
+     */
+    public void battle(int strangerAttack, int strangerHealth, int healPool) {
+        flushDraws();
+        CardDatabase.BattleResult result = cardDatabase.findAndRemoveBestCard(strangerAttack, strangerHealth);
+        Card bestCard = result.card;
+        playedCard = bestCard;
+        playedPriority = result.priority;
+
+        if (bestCard == null) {
+            strangerScore += 2;
+            cardsRevived = handleHealingPhase(healPool);
+        } else {
+            int strangerCardBaseHealth = strangerHealth;
+            boolean cardDied = bestCard.takeDamage(strangerAttack);
+            strangerHealth -= bestCard.A_cur_before_damage;
+
+            if (cardDied) strangerScore += 2;
+            if (strangerHealth <= 0) survivorScore += 2;
+            if (!cardDied && bestCard.H_cur < bestCard.H_base) strangerScore += 1;
+            if (strangerHealth > 0 && strangerHealth < strangerCardBaseHealth) survivorScore += 1;
+
+            if (cardDied) {
+                cardDatabase.addToDiscard(bestCard);
+            }
+
+            cardsRevived = handleHealingPhase(healPool);
+
+            if (!cardDied) {
+                bestCard.entryTime = entryTimeCounter++;
+                cardDatabase.insert(bestCard);
+            }
+            playedCardDied = cardDied;
+        }
+    }
+
+    private int handleHealingPhase(int healPool) {
+        if (healPool == 0) return 0;
+        int revivedCount = cardDatabase.healCards(healPool, entryTimeCounter);
+        entryTimeCounter += revivedCount;
+        return revivedCount;
+    }
+
+    private void handleStealCard(int attackLimit, int healthLimit, ResultWriter writer) throws IOException {
+        Card stolenCard = cardDatabase.findAndRemoveStealCard(attackLimit, healthLimit);
+        if (stolenCard == null) {
+            writer.write(MSG_NO_STEAL);
+        } else {
+            writer.write(MSG_STOLE);
+            writer.write(stolenCard.nameBytes);
+            writer.write(NEWLINE);
+        }
+    }
+
+    // "The Stranger stole k cards: name1 name2 ..." (in steal order)
+    private void handleStealAll(int attackLimit, int healthLimit, ResultWriter writer) throws IOException {
+        Card[] stolenCards = cardDatabase.findAndRemoveAllStealCards(attackLimit, healthLimit);
+        if (stolenCards.length == 0) {
+            writer.write(MSG_NO_STEAL);
+            return;
+        }
+        writer.write(MSG_STOLE_ALL);
+        writer.writeInt(stolenCards.length);
+        writer.write((stolenCards.length == 1) ? MSG_CARD : MSG_CARDS);
+        for (Card card : stolenCards) {
+            writer.write(SPACE);
+            writer.write(card.nameBytes);
+        }
+        writer.write(NEWLINE);
+    }
+
+    private void handleCheckpoint(boolean save, String path, ResultWriter writer) throws IOException {
+        if (!cardDatabase.supportsCheckpoints()) {
+            writer.write(MSG_CHECKPOINT_UNSUPPORTED);
+            return;
+        }
+        try {
+            if (save) checkpoint(path);
+            else restore(path);
+        } catch (IOException e) {
+            writer.write(ResultWriter.encode("Checkpoint failed: " + e.getMessage() + "\n"));
+            return;
+        }
+        writer.write(save ? MSG_CHECKPOINT_SAVED : MSG_CHECKPOINT_RESTORED);
+        writer.writeInt(cardDatabase.getDeckCount());
+        writer.write(MSG_DECK_CARDS);
+        writer.writeInt(cardDatabase.getDiscardCount());
+        writer.write(MSG_DISCARD_CARDS);
+    }
+
+    // "Candidate cards: P1 a, P2 b, P3 c, P4 d" (the cards each priority would choose from)
+    private void handleCountCandidates(int strAtt, int strHp, ResultWriter writer) throws IOException {
+        if (cardDatabase.countCandidates(1, strAtt, strHp) < 0) {
+            writer.write(MSG_NO_COUNTS);
+            return;
+        }
+        writer.write(MSG_CANDIDATES);
+        for (int p = 1; p <= 4; p++) {
+            if (p > 1) writer.write(MSG_SEP);
+            writer.write(MSG_P[p]);
+            writer.writeInt(cardDatabase.countCandidates(p, strAtt, strHp));
+        }
+        writer.write(NEWLINE);
+    }
+
+    private void handleFindWinning(ResultWriter writer) throws IOException {
+        if (survivorScore >= strangerScore) { // Survivor wins ties
+            writer.write(MSG_SURVIVOR_WINS);
+            writer.writeInt(survivorScore);
+        } else {
+            writer.write(MSG_STRANGER_WINS);
+            writer.writeInt(strangerScore);
+        }
+        writer.write(NEWLINE);
+    }
+}
@@ -32,6 +32,43 @@
  * 2. Run: java Main ../testcase_inputs/test.txt ../output/test.txt
  * 3. Compare output with expected results
  *
+ * Optional flags (after the two file arguments):
+ *   --array-deck     Use ArrayAttackTree (primitive array node pool) for the deck
+ *   --two-pass       Battle search, then a separate delete (instead of fused find-and-remove)
+ *   --battle-visits  Print deck nodes visited per battle to stderr at the end
+ *   --offline        Pre-scan the input to bound A/H values, then run the deck on
+ *                    SegmentDeckIndex (segment trees) instead of nested AVL trees
+ *   --persistent     Run on PersistentCardDatabase (path-copying trees, O(1) fork)
+ *   --off-heap       Use ArrayAttackTree over an OffHeapCardStore: deck cards live in
+ *                    direct memory as int handles, out of reach of the GC
+ *   --bitmap-outer   Pre-scan the attack range, then replace the outer AVL tree with
+ *                    BitmapAttackTree (64-ary bitmap with per-block H_max/H_min)
+ *   --small-set N    Inner containers (AttackTree, and SegmentDeckIndex with --offline)
+ *                    stay sorted arrays up to N cards (default 16 for AttackTree and 64
+ *                    for SegmentDeckIndex, 0 = always trees)
+ *   --restore FILE   Start from a checkpoint written by the "checkpoint" command (the deck
+ *                    stays online: --offline and --bitmap-outer only scan the new input)
+ *
+ * Search-cost counters: java -Dnightpass.stats=true Main ... enables the
+ * detailed EngineStats counters, printed to stderr at the end of the run and
+ * by the extra command "engine_stats" (written to the output file).
+ *
+ * Output: on a multi-core machine results go through a writer thread fed by
+ * a ring of buffers; -Doutput.buffer=<bytes> and -Doutput.queue=<buffers>
+ * size it, and -Doutput.queue=0 writes synchronously (see ResultWriter).
+ *
+ * Extra commands: "steal_all att hp" removes every deck card with A_cur > att
+ * and H_cur > hp at once ("The Stranger stole k cards: ..." in steal order).
+ * "checkpoint <file>" saves the whole game state to a binary file and
+ * "restore <file>" loads one back (see Checkpoint), so a long game can be
+ * resumed without replaying its command log.
+ *
+ * Many games at once: java BatchRunner <input_dir> <output_dir> [--threads N] [--scale]
+ * What-if strangers:  java MonteCarlo <input_file> <output_file> <branches> <battles> [seed]
+ * Hot-path benchmarks: java DatabaseBenchmark [--bench ...] [--sizes ...] [--deck ...]
+ * Load tests: java WorkloadGenerator <file> <commands> [...], then
+ *             java ReplayDriver <file> <output_file> [Main flags] (commands/sec, latency, peak heap)
+ *
  * PROJECT STRUCTURE:
  * ==================
  *
@@ -52,169 +89,99 @@
 
 
 import java.io.*;
-import java.util.Scanner;
 import java.util.ArrayList;
 import java.math.*;
 
 public class Main {
 
-    // --- Game State ---
-    private static long entryTimeCounter = 0;
-    private static int survivorScore = 0;
-    private static int strangerScore = 0;
-
-    // --- Core Data Structure ---
-    private static CardDatabase cardDatabase;
-
-
     public static void main(String[] args) {
         if (args.length < 2) {
-            System.out.println("Usage: java Main <input_file> <output_file>");
+            System.out.println("Usage: java Main <input_file> <output_file> [--array-deck] [--two-pass] [--battle-visits] [--offline] [--persistent] [--bitmap-outer] [--small-set N] [--off-heap] [--restore FILE]");
             return;
         }
         String inputFile = args[0];
         String outputFile = args[1];
+        Game game = createGame(inputFile, args, 2);
 
-        cardDatabase = new CardDatabase();
-
-        Scanner scanner = null;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
-
-            try {
-                scanner = new Scanner(new File(inputFile));
-
-                while (scanner.hasNextLine()) {
-                    String line = scanner.nextLine();
-                    if (line.isEmpty()) continue; // Skip empty lines
-
-                    String[] tokens = line.split(" ");
-                    String command = tokens[0];
-
-                    switch (command) {
-                        case "draw_card":
-                            handleDrawCard(tokens, writer);
-                            break;
-                        case "battle":
-                            handleBattle(tokens, writer);
-                            break;
-                        case "steal_card":
-                            handleStealCard(tokens, writer);
-                            break;
-                        case "deck_count":
-                            writer.write("Number of cards in the deck: " + cardDatabase.getDeckCount() + "\n");
-                            break;
-                        case "discard_pile_count":
-                            writer.write("Number of cards in the discard pile: " + cardDatabase.getDiscardCount() + "\n");
-                            break;
-                        case "find_winning":
-                            handleFindWinning(writer);
-                            break;
-                    }
-                }
-            } catch (IOException e) {
-                // Handle file reading errors
-                e.printStackTrace();
-            } finally {
-                // Ensure scanner is closed
-                if (scanner != null) {
-                    scanner.close();
-                }
-            }
-
+        try (ResultWriter writer = ResultWriter.open(outputFile); // Writer thread unless -Doutput.queue=0
+             CommandReader reader = new CommandReader(inputFile)) {
+            restoreCheckpoint(game, args, 2);
+            game.play(reader, writer);
         } catch (IOException e) {
-            // Handle file writing errors
+            // Handle file reading/writing errors
             e.printStackTrace();
         }
-    }
 
-    // --- Command Handlers ---
-
-    private static void handleDrawCard(String[] tokens, BufferedWriter writer) throws IOException {
-        String name = tokens[1];
-        int attack = Integer.parseInt(tokens[2]);
-        int health = Integer.parseInt(tokens[3]);
-
-        Card newCard = new Card(name, attack, health, entryTimeCounter++);
-        cardDatabase.insert(newCard);
-
-        writer.write("Added " + name + " to the deck\n");
+        if (hasFlag(args, 2, "--battle-visits")) printBattleVisits(game.getCardDatabase());
+        if (EngineStats.ENABLED) System.err.print(game.getCardDatabase().statsReport());
     }
 
+    /**
+     * Builds the game for inputFile as configured by the flags in args[from..]
+     * (shared with ReplayDriver, which runs the same engine in-process).
+     */
+    static Game createGame(String inputFile, String[] args, int from) {
+        boolean arrayDeck = false;
+        boolean twoPass = false;
+        boolean offline = false;
+        boolean persistent = false;
+        boolean bitmapOuter = false;
+        boolean offHeap = false;
+        int smallSet = -1; // Each deck's default
+        for (int i = from; i < args.length; i++) {
+            if (args[i].equals("--array-deck")) arrayDeck = true;
+            else if (args[i].equals("--two-pass")) twoPass = true;
+            else if (args[i].equals("--offline")) offline = true;
+            else if (args[i].equals("--persistent")) persistent = true;
+            else if (args[i].equals("--bitmap-outer")) bitmapOuter = true;
+            else if (args[i].equals("--off-heap")) offHeap = true;
+            else if (args[i].equals("--small-set") && i + 1 < args.length) smallSet = Integer.parseInt(args[++i]);
+        }
+        if (flagValue(args, from, "--restore") != null) { // Checkpointed values are outside the pre-scan
+            offline = false;
+            bitmapOuter = false;
+        }
 
-    private static void handleBattle(String[] tokens, BufferedWriter writer) throws IOException {
-        int strangerAttack = Integer.parseInt(tokens[1]);
-        int strangerHealth = Integer.parseInt(tokens[2]);
-        int healPool = Integer.parseInt(tokens[3]);
-
-        CardDatabase.BattleResult result = cardDatabase.findAndRemoveBestCard(strangerAttack, strangerHealth);
-        Card bestCard = result.card;
-        int priority = result.priority;
-        int cardsRevived = 0;
-
-        if (bestCard == null) {
-            strangerScore += 2;
-            cardsRevived = handleHealingPhase(healPool);
-            writer.write("No card to play, " + cardsRevived + " cards revived\n");
-        } else {
-            int strangerCardBaseHealth = strangerHealth;
-            boolean cardDied = bestCard.takeDamage(strangerAttack);
-            strangerHealth -= bestCard.A_cur_before_damage;
-
-            if (cardDied) strangerScore += 2;
-            if (strangerHealth <= 0) survivorScore += 2;
-            if (!cardDied && bestCard.H_cur < bestCard.H_base) strangerScore += 1;
-            if (strangerHealth > 0 && strangerHealth < strangerCardBaseHealth) survivorScore += 1;
-
-            if (cardDied) {
-                cardDatabase.addToDiscard(bestCard);
-            }
-
-            cardsRevived = handleHealingPhase(healPool);
+        CardDatabase cardDatabase;
+        if (persistent) cardDatabase = new PersistentCardDatabase();
+        else if (offHeap) cardDatabase = new CardDatabase(new ArrayAttackTree(new OffHeapCardStore()));
+        else cardDatabase = new CardDatabase(Game.createDeck(inputFile, arrayDeck, offline, bitmapOuter, smallSet));
+        cardDatabase.setFusedRemoval(!twoPass);
+        return new Game(cardDatabase);
+    }
 
-            if (cardDied) {
-                writer.write("Found with priority " + priority + ", Survivor plays " + bestCard.name +
-                        ", the played card is discarded, " + cardsRevived + " cards revived\n");
-            } else {
-                bestCard.entryTime = entryTimeCounter++;
-                cardDatabase.insert(bestCard);
-                writer.write("Found with priority " + priority + ", Survivor plays " + bestCard.name +
-                        ", the played card returned to deck, " + cardsRevived + " cards revived\n");
-            }
+    /**
+     * Loads the --restore checkpoint, if one is given, into a game from createGame().
+     */
+    static void restoreCheckpoint(Game game, String[] args, int from) throws IOException {
+        String path = flagValue(args, from, "--restore");
+        if (path == null) return;
+        if (!game.getCardDatabase().supportsCheckpoints()) {
+            throw new IOException("--restore cannot be combined with --persistent (no checkpoints)");
         }
+        game.restore(path);
     }
 
-    private static int handleHealingPhase(int healPool) {
-        if (healPool == 0) return 0;
-        int revivedCount = cardDatabase.healCards(healPool, entryTimeCounter);
-        entryTimeCounter += revivedCount;
-        return revivedCount;
+    static boolean hasFlag(String[] args, int from, String flag) {
+        for (int i = from; i < args.length; i++) {
+            if (args[i].equals(flag)) return true;
+        }
+        return false;
     }
 
-    private static void handleStealCard(String[] tokens, BufferedWriter writer) throws IOException {
-        int attackLimit = Integer.parseInt(tokens[1]);
-        int healthLimit = Integer.parseInt(tokens[2]);
-        Card stolenCard = cardDatabase.findAndRemoveStealCard(attackLimit, healthLimit);
-        if (stolenCard == null) {
-            writer.write("No card to steal\n");
-        } else {
-            writer.write("The Stranger stole the card: " + stolenCard.name + "\n");
+    // The argument after flag, or null
+    static String flagValue(String[] args, int from, String flag) {
+        for (int i = from; i + 1 < args.length; i++) {
+            if (args[i].equals(flag)) return args[i + 1];
         }
+        return null;
     }
 
-    private static void handleFindWinning(BufferedWriter writer) throws IOException {
-        if (survivorScore >= strangerScore) { // Survivor wins ties
-            writer.write("The Survivor, Score: " + survivorScore + "\n");
-        } else {
-            writer.write("The Stranger, Score: " + strangerScore + "\n");
-        }
+    private static void printBattleVisits(CardDatabase cardDatabase) {
+        long battles = cardDatabase.getBattleCount();
+        long visits = cardDatabase.getBattleNodesVisited();
+        System.err.printf("Battle search (%s): %d battles, %d deck nodes visited, %.2f per battle%n",
+                cardDatabase.isFusedRemoval() ? "fused" : "two-pass",
+                battles, visits, (battles == 0) ? 0.0 : (double) visits / battles);
     }
 }
-
-
-
-
-
-
-
-
-
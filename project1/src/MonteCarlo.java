@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: MonteCarlo.java ---
+ * (What-if evaluation: forks one game state into many branches, plays a
+ *  random stranger sequence on each branch and collects the final scores)
+ * (Branches fan out over a fork-join pool; a fork is O(1) because the game
+ *  runs on PersistentCardDatabase, whose trees are shared, never mutated)
+ * ======================================================================
+ *
+ * Usage: java MonteCarlo <input_file> <output_file> <branches> <battles> [seed]
+ *   Plays input_file (normal output goes to output_file), then simulates
+ *   <branches> continuations of <battles> random strangers each. Stranger
+ *   attack/health/heal are drawn uniformly up to the maxima seen in the input.
+ */
+public class MonteCarlo {
+
+    // Branches per leaf task (one fork + a few battles is too little work to split further)
+    private static final int LEAF_BRANCHES = 16;
+
+    /**
+     * Final scores of every branch, indexed by branch number.
+     */
+    public static class Distribution {
+        public final int[] survivorScores;
+        public final int[] strangerScores;
+
+        Distribution(int branches) {
+            this.survivorScores = new int[branches];
+            this.strangerScores = new int[branches];
+        }
+
+        public int branches() { return survivorScores.length; }
+
+        // Survivor wins ties, as in find_winning
+        public double survivorWinRate() {
+            int wins = 0;
+            for (int i = 0; i < survivorScores.length; i++) {
+                if (survivorScores[i] >= strangerScores[i]) wins++;
+            }
+            return (branches() == 0) ? 0.0 : (double) wins / branches();
+        }
+
+        public double meanSurvivorScore() { return mean(survivorScores); }
+        public double meanStrangerScore() { return mean(strangerScores); }
+
+        private static double mean(int[] scores) {
+            long sum = 0;
+            for (int s : scores) sum += s;
+            return (scores.length == 0) ? 0.0 : (double) sum / scores.length;
+        }
+
+        /**
+         * p-th percentile (0-100) of survivorScore - strangerScore, by counting.
+         */
+        public int marginPercentile(double p) {
+            if (branches() == 0) return 0;
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (int i = 0; i < survivorScores.length; i++) {
+                int m = survivorScores[i] - strangerScores[i];
+                min = Math.min(min, m);
+                max = Math.max(max, m);
+            }
+            int[] counts = new int[max - min + 1];
+            for (int i = 0; i < survivorScores.length; i++) {
+                counts[survivorScores[i] - strangerScores[i] - min]++;
+            }
+            long rank = (long) Math.ceil(p / 100.0 * branches());
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) return i + min;
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Plays branches random continuations of start on the given pool.
+     * start must run on PersistentCardDatabase and must not be played
+     * while the simulation runs. Branch i uses its own seeded random
+     * stream, so the result does not depend on the pool size.
+     */
+    public static Distribution simulate(Game start, int branches, int battles,
+                                        int maxAttack, int maxHealth, int maxHeal,
+                                        long seed, ForkJoinPool pool) {
+        Distribution result = new Distribution(branches);
+        pool.invoke(new BranchTask(start, 0, branches, battles, maxAttack, maxHealth, maxHeal, seed, result));
+        return result;
+    }
+
+    private static class BranchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // ForkJoinTask is Serializable; tasks never are in practice
+        private final Game start;
+        private final int from, to, battles;
+        private final int maxAttack, maxHealth, maxHeal;
+        private final long seed;
+        private final Distribution result;
+
+        BranchTask(Game start, int from, int to, int battles, int maxAttack, int maxHealth, int maxHeal,
+                   long seed, Distribution result) {
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.battles = battles;
+            this.maxAttack = maxAttack;
+            this.maxHealth = maxHealth;
+            this.maxHeal = maxHeal;
+            this.seed = seed;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_BRANCHES) {
+                for (int i = from; i < to; i++) playBranch(i);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BranchTask(start, from, mid, battles, maxAttack, maxHealth, maxHeal, seed, result),
+                      new BranchTask(start, mid, to, battles, maxAttack, maxHealth, maxHeal, seed, result));
+        }
+
+        private void playBranch(int branch) {
+            SplittableRandom random = new SplittableRandom(seed + branch * 0x9E3779B97F4A7C15L);
+            Game game = start.fork();
+            for (int b = 0; b < battles; b++) {
+                int attack = 1 + random.nextInt(maxAttack);
+                int health = 1 + random.nextInt(maxHealth);
+                int heal = random.nextInt(maxHeal + 1);
+                game.battle(attack, health, heal);
+            }
+            result.survivorScores[branch] = game.getSurvivorScore();
+            result.strangerScores[branch] = game.getStrangerScore();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: java MonteCarlo <input_file> <output_file> <branches> <battles> [seed]");
+            return;
+        }
+        String inputFile = args[0];
+        String outputFile = args[1];
+        int branches = Integer.parseInt(args[2]);
+        int battles = Integer.parseInt(args[3]);
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 250L;
+
+        // Stranger value ranges: the maxima of the input's battles
+        int maxAttack = 1, maxHealth = 1, maxHeal = 0;
+        try (CommandReader reader = new CommandReader(inputFile, false)) {
+            int command;
+            while ((command = reader.next()) != CommandReader.EOF) {
+                if (command != CommandReader.BATTLE) continue;
+                maxAttack = Math.max(maxAttack, reader.arg1);
+                maxHealth = Math.max(maxHealth, reader.arg2);
+                maxHeal = Math.max(maxHeal, reader.arg3);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        Game game = new Game(new PersistentCardDatabase());
+        try {
+            game.play(inputFile, outputFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long startTime = System.nanoTime();
+        Distribution d = simulate(game, branches, battles, maxAttack, maxHealth, maxHeal, seed, pool);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("%d branches x %d battles from deck %d / discard %d in %.3f s (%.0f battles/sec, %d threads)%n",
+                branches, battles, game.getCardDatabase().getDeckCount(), game.getCardDatabase().getDiscardCount(),
+                seconds, (double) branches * battles / seconds, pool.getParallelism());
+        System.out.printf("Survivor win rate: %.2f%%%n", 100.0 * d.survivorWinRate());
+        System.out.printf("Mean score: Survivor %.2f, Stranger %.2f%n", d.meanSurvivorScore(), d.meanStrangerScore());
+        System.out.printf("Margin (Survivor - Stranger) p5 %d, p50 %d, p95 %d%n",
+                d.marginPercentile(5), d.marginPercentile(50), d.marginPercentile(95));
+    }
+}
@@ -0,0 +1,172 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: OffHeapCardStore.java ---
+ * (Card records in direct (off-heap) memory, addressed by int handles:
+ *  the GC never traces or copies them, however many cards the deck holds)
+ * (Fixed 64-byte records in 4 MB chunks; names go to an append-only
+ *  byte arena, written once per card)
+ * ======================================================================
+ *
+ * A record is a verbatim copy of the Card fields: store() writes them, load()
+ * rebuilds an equal Card. Game rules (takeDamage, applyFullRevive,
+ * applyPartialRevive) always run on the loaded Card, so their results are
+ * bit-for-bit those of the heap engine.
+ *
+ * Direct memory is capped by -XX:MaxDirectMemorySize (default: the max heap size).
+ */
+public class OffHeapCardStore {
+
+    // --- Record layout (byte offsets) ---
+    private static final int A_INIT = 0;
+    private static final int H_INIT = 4;
+    private static final int A_BASE = 8;
+    private static final int H_BASE = 12;
+    private static final int A_CUR = 16;
+    private static final int H_CUR = 20;
+    private static final int A_CUR_BEFORE_DAMAGE = 24;
+    private static final int REVIVAL_PROGRESS = 28;
+    private static final int ENTRY_TIME = 32; // long
+    private static final int DISCARD_TIME = 40; // long
+    private static final int NAME_REF = 48; // long: (arena chunk << 32) | offset
+    private static final int NAME_LENGTH = 56;
+    private static final int RECORD_BITS = 6; // 64-byte records
+    private static final int NEXT_FREE = A_INIT; // Free records are chained through A_INIT
+
+    private static final int CHUNK_RECORD_BITS = 16; // 65536 records (4 MB) per chunk
+    private static final int CHUNK_MASK = (1 << CHUNK_RECORD_BITS) - 1;
+    private static final int ARENA_CHUNK_SIZE = 1 << 22;
+    private static final int NONE = -1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int chunkCount = 0;
+    private int nextHandle = 0; // First never-used handle
+    private int freeHandle = NONE; // Free list head
+    private int liveRecords = 0;
+
+    private ByteBuffer[] arena = new ByteBuffer[16];
+    private int arenaCount = 0;
+    private int arenaPos = ARENA_CHUNK_SIZE; // Write position in the last arena chunk (full: none yet)
+    private long arenaBytes = 0;
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer chunk(int handle) { return chunks[handle >>> CHUNK_RECORD_BITS]; }
+    private static int offset(int handle) { return (handle & CHUNK_MASK) << RECORD_BITS; }
+
+    public int size() { return liveRecords; }
+
+    // Off-heap bytes reserved so far (records + name arena)
+    public long reservedBytes() {
+        return ((long) chunkCount << (CHUNK_RECORD_BITS + RECORD_BITS)) + arenaBytes;
+    }
+
+    /**
+     * Writes the card into its record, allocating one (and storing the name)
+     * the first time; the handle is kept in card.handle.
+     */
+    public int store(Card card) {
+        int h = card.handle;
+        if (h < 0) {
+            h = allocateRecord();
+            ByteBuffer b = chunk(h);
+            int o = offset(h);
+            b.putLong(o + NAME_REF, appendName(card.nameBytes));
+            b.putInt(o + NAME_LENGTH, card.nameBytes.length);
+            card.handle = h;
+        }
+        ByteBuffer b = chunk(h);
+        int o = offset(h);
+        b.putInt(o + A_INIT, card.A_init);
+        b.putInt(o + H_INIT, card.H_init);
+        b.putInt(o + A_BASE, card.A_base);
+        b.putInt(o + H_BASE, card.H_base);
+        b.putInt(o + A_CUR, card.A_cur);
+        b.putInt(o + H_CUR, card.H_cur);
+        b.putInt(o + A_CUR_BEFORE_DAMAGE, card.A_cur_before_damage);
+        b.putInt(o + REVIVAL_PROGRESS, card.revival_progress);
+        b.putLong(o + ENTRY_TIME, card.entryTime);
+        b.putLong(o + DISCARD_TIME, card.discardTime);
+        return h;
+    }
+
+    /**
+     * A new heap Card equal to the stored one (short-lived: the caller
+     * battles, steals or re-stores it).
+     */
+    public Card load(int h) {
+        ByteBuffer b = chunk(h);
+        int o = offset(h);
+        long nameRef = b.getLong(o + NAME_REF);
+        byte[] nameBytes = new byte[b.getInt(o + NAME_LENGTH)];
+        arena[(int) (nameRef >>> 32)].get((int) nameRef, nameBytes);
+
+        Card card = new Card(nameBytes);
+        card.handle = h;
+        card.A_init = b.getInt(o + A_INIT);
+        card.H_init = b.getInt(o + H_INIT);
+        card.A_base = b.getInt(o + A_BASE);
+        card.H_base = b.getInt(o + H_BASE);
+        card.A_cur = b.getInt(o + A_CUR);
+        card.H_cur = b.getInt(o + H_CUR);
+        card.A_cur_before_damage = b.getInt(o + A_CUR_BEFORE_DAMAGE);
+        card.revival_progress = b.getInt(o + REVIVAL_PROGRESS);
+        card.entryTime = b.getLong(o + ENTRY_TIME);
+        card.discardTime = b.getLong(o + DISCARD_TIME);
+        return card;
+    }
+
+    /**
+     * Releases the record of a card that left the game (its name bytes stay
+     * in the arena, which only grows).
+     */
+    public void free(Card card) {
+        int h = card.handle;
+        if (h < 0) return;
+        chunk(h).putInt(offset(h) + NEXT_FREE, freeHandle);
+        freeHandle = h;
+        liveRecords--;
+        card.handle = -1;
+    }
+
+    private int allocateRecord() {
+        liveRecords++;
+        if (freeHandle != NONE) {
+            int h = freeHandle;
+            freeHandle = chunk(h).getInt(offset(h) + NEXT_FREE);
+            return h;
+        }
+        if (nextHandle < 0) throw new IllegalStateException("OffHeapCardStore is full (2^31 records)");
+        if ((nextHandle >>> CHUNK_RECORD_BITS) == chunkCount) {
+            if (chunkCount == chunks.length) {
+                ByteBuffer[] bigger = new ByteBuffer[chunks.length * 2];
+                System.arraycopy(chunks, 0, bigger, 0, chunkCount);
+                chunks = bigger;
+            }
+            chunks[chunkCount++] = allocate(1 << (CHUNK_RECORD_BITS + RECORD_BITS));
+        }
+        return nextHandle++;
+    }
+
+    private long appendName(byte[] nameBytes) {
+        if (ARENA_CHUNK_SIZE - arenaPos < nameBytes.length) {
+            if (arenaCount == arena.length) {
+                ByteBuffer[] bigger = new ByteBuffer[arena.length * 2];
+                System.arraycopy(arena, 0, bigger, 0, arenaCount);
+                arena = bigger;
+            }
+            int size = Math.max(ARENA_CHUNK_SIZE, nameBytes.length); // A huge name gets a chunk of its own
+            arena[arenaCount++] = allocate(size);
+            arenaBytes += size;
+            arenaPos = 0;
+        }
+        long ref = ((long) (arenaCount - 1) << 32) | arenaPos;
+        arena[arenaCount - 1].put(arenaPos, nameBytes);
+        arenaPos += nameBytes.length;
+        return ref;
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: PersistentCardDatabase.java ---
+ * (CardDatabase over path-copying trees: fork() is O(1) and every battle
+ *  allocates only the O(log n) nodes on the paths it changes)
+ * (The deck is a PersistentDeck; the discard pile is an immutable AVL tree
+ *  ordered by (HMissing ASC, discardTime ASC), like DiscardTree)
+ * ======================================================================
+ *
+ * Copy-on-write cards: a card reachable from a tree may be shared with other
+ * forks, so it is never mutated. The battle card is copied when it leaves the
+ * deck, and discarded cards are copied before they are healed.
+ */
+public class PersistentCardDatabase extends CardDatabase implements Forkable {
+
+    // --- Immutable discard node (shared between forks) ---
+    private static final class DiscardNode {
+        final Card card;
+        final DiscardNode left, right;
+        final int height;
+
+        DiscardNode(Card card, DiscardNode left, DiscardNode right) {
+            this.card = card;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+
+    private final PersistentDeck deck;
+    private DiscardNode discardRoot; // discardCount and discardTimeCounter are CardDatabase's
+
+    // --- Cards revived by the current heal phase, in revival order ---
+    private Card[] revived = new Card[16];
+
+    public PersistentCardDatabase() {
+        this(new PersistentDeck());
+    }
+
+    private PersistentCardDatabase(PersistentDeck deck) {
+        super(deck, false);
+        this.deck = deck;
+    }
+
+    private PersistentCardDatabase(PersistentCardDatabase source, PersistentDeck deck) {
+        super(source, deck);
+        this.deck = deck;
+        this.discardRoot = source.discardRoot;
+    }
+
+    /**
+     * O(1): shares both trees with this database.
+     */
+    @Override
+    public PersistentCardDatabase fork() {
+        return new PersistentCardDatabase(this, deck.fork());
+    }
+
+    /**
+     * Removes the best card from the deck and returns a private copy of it,
+     * so the caller may damage it without affecting other forks.
+     */
+    @Override
+    public BattleResult findAndRemoveBestCard(int strAtt, int strHp) {
+        BattleResult result = super.findAndRemoveBestCard(strAtt, strHp);
+        if (result.card != null) result.card = result.card.copy();
+        return result;
+    }
+
+    @Override
+    public void addToDiscard(Card card) {
+        card.H_cur = 0;
+        card.revival_progress = 0;
+        card.discardTime = discardTimeCounter++;
+        discardRoot = insert(discardRoot, card);
+        discardCount++;
+    }
+
+    // --- Checkpoints read the mutable DiscardTree, which this class does not use ---
+    @Override
+    public boolean supportsCheckpoints() { return false; }
+
+    @Override
+    public void writeCheckpoint(DataOutputStream out) {
+        throw new IllegalStateException("PersistentCardDatabase has no checkpoints (see supportsCheckpoints)");
+    }
+
+    @Override
+    public void readCheckpoint(DataInputStream in) {
+        throw new IllegalStateException("PersistentCardDatabase has no checkpoints (see supportsCheckpoints)");
+    }
+
+    /**
+     * Type-2 Healing Phase, same greedy as CardDatabase.healCards(): full
+     * revives by largest HMissing <= pool (earliest discardTime first), then
+     * one partial heal of the smallest HMissing.
+     */
+    @Override
+    public int healCards(int healPool, long baseEntryTimeCounter) {
+        if (healPool <= 0 || discardCount == 0) return 0;
+        long currentEntryTime = baseEntryTimeCounter;
+        EngineStats stats = getStats();
+        if (EngineStats.ENABLED) stats.healCalls++;
+
+        int revivedCount = 0;
+        while (healPool > 0 && discardRoot != null) {
+            int cost = lastHMissingAtMost(discardRoot, healPool);
+            if (cost < 0) break;
+            Card card = firstHMissingAtLeast(discardRoot, cost);
+            discardRoot = delete(discardRoot, card);
+            healPool -= cost;
+            if (EngineStats.ENABLED) stats.revivalIterations++;
+
+            Card copy = card.copy();
+            copy.applyFullRevive();
+            copy.entryTime = currentEntryTime++;
+            if (revivedCount == revived.length) {
+                Card[] bigger = new Card[revived.length * 2];
+                System.arraycopy(revived, 0, bigger, 0, revivedCount);
+                revived = bigger;
+            }
+            revived[revivedCount++] = copy;
+        }
+        discardCount -= revivedCount;
+        if (EngineStats.ENABLED) stats.fullRevives += revivedCount;
+        this.insertAll(revived, revivedCount);
+        for (int i = 0; i < revivedCount; i++) revived[i] = null;
+
+        // P3: Partial heal
+        if (healPool > 0 && discardRoot != null) {
+            DiscardNode min = discardRoot;
+            while (min.left != null) min = min.left;
+            discardRoot = delete(discardRoot, min.card);
+
+            Card copy = min.card.copy();
+            copy.applyPartialRevive(healPool);
+            if (EngineStats.ENABLED) stats.partialHeals++;
+            copy.discardTime = discardTimeCounter++;
+            discardRoot = insert(discardRoot, copy);
+        }
+        return revivedCount;
+    }
+
+    // --- Path-copying AVL over (HMissing ASC, discardTime ASC) ---
+
+    private static int height(DiscardNode n) { return (n == null) ? 0 : n.height; }
+
+    private static int compare(Card a, Card b) {
+        int ha = a.getHMissing(), hb = b.getHMissing();
+        if (ha != hb) return Integer.compare(ha, hb);
+        return Long.compare(a.discardTime, b.discardTime);
+    }
+
+    private static DiscardNode balance(Card card, DiscardNode left, DiscardNode right) {
+        int hl = height(left), hr = height(right);
+        if (hl > hr + 1) {
+            if (height(left.left) >= height(left.right)) { // Left Left
+                return new DiscardNode(left.card, left.left, new DiscardNode(card, left.right, right));
+            }
+            DiscardNode lr = left.right; // Left Right
+            return new DiscardNode(lr.card, new DiscardNode(left.card, left.left, lr.left),
+                    new DiscardNode(card, lr.right, right));
+        }
+        if (hr > hl + 1) {
+            if (height(right.right) >= height(right.left)) { // Right Right
+                return new DiscardNode(right.card, new DiscardNode(card, left, right.left), right.right);
+            }
+            DiscardNode rl = right.left; // Right Left
+            return new DiscardNode(rl.card, new DiscardNode(card, left, rl.left),
+                    new DiscardNode(right.card, rl.right, right.right));
+        }
+        return new DiscardNode(card, left, right);
+    }
+
+    private static DiscardNode insert(DiscardNode n, Card card) {
+        if (n == null) return new DiscardNode(card, null, null);
+        if (compare(card, n.card) < 0) return balance(n.card, insert(n.left, card), n.right);
+        return balance(n.card, n.left, insert(n.right, card));
+    }
+
+    private static DiscardNode delete(DiscardNode n, Card card) {
+        if (n == null) return null;
+        int cmp = compare(card, n.card);
+        if (cmp < 0) return balance(n.card, delete(n.left, card), n.right);
+        if (cmp > 0) return balance(n.card, n.left, delete(n.right, card));
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        DiscardNode successor = n.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.card, n.left, deleteMin(n.right));
+    }
+
+    private static DiscardNode deleteMin(DiscardNode n) {
+        if (n.left == null) return n.right;
+        return balance(n.card, deleteMin(n.left), n.right);
+    }
+
+    // Largest HMissing <= limit, or -1
+    private static int lastHMissingAtMost(DiscardNode n, int limit) {
+        int best = -1;
+        while (n != null) {
+            int h = n.card.getHMissing();
+            if (h <= limit) {
+                best = h;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return best;
+    }
+
+    // Earliest-discarded card with HMissing >= limit
+    private static Card firstHMissingAtLeast(DiscardNode n, int limit) {
+        Card best = null;
+        while (n != null) {
+            if (n.card.getHMissing() >= limit) {
+                best = n.card;
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: PersistentDeck.java ---
+ * (Path-copying deck: nodes are immutable, every insert/delete copies only
+ *  the O(log n) nodes on its search path, so fork() is O(1))
+ * (One AVL tree ordered by (A_cur ASC, H_cur ASC, entryTime ASC) instead of
+ *  the AVL-of-AVL of AttackTree: a single level keeps path copying simple,
+ *  and the H_max/H_min augmentation still answers every priority search)
+ * ======================================================================
+ *
+ * Cards stored here must not be mutated while any fork can still reach them;
+ * PersistentCardDatabase hands out copies before a card is damaged or healed.
+ */
+public class PersistentDeck implements DeckIndex {
+
+    // --- Immutable node (shared between forks) ---
+    private static final class Node {
+        final Card card;
+        final Node left, right;
+        final int height;
+        final int aMax; // Max A_cur in subtree (the rightmost card)
+        final int hMax; // Max H_cur in subtree
+        final int hMin; // Min H_cur in subtree
+        final int size; // Cards in subtree
+
+        Node(Card card, Node left, Node right) {
+            this.card = card;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+            this.aMax = (right != null) ? right.aMax : card.A_cur;
+            int max = card.H_cur, min = card.H_cur;
+            if (left != null) {
+                max = Math.max(max, left.hMax);
+                min = Math.min(min, left.hMin);
+            }
+            if (right != null) {
+                max = Math.max(max, right.hMax);
+                min = Math.min(min, right.hMin);
+            }
+            this.hMax = max;
+            this.hMin = min;
+        }
+    }
+
+    private Node root;
+
+    public PersistentDeck() {}
+
+    private PersistentDeck(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * O(1): the fork shares every node with this deck; later updates on
+     * either side copy their own paths and never touch the other.
+     */
+    public PersistentDeck fork() {
+        return new PersistentDeck(root);
+    }
+
+    private static int height(Node n) { return (n == null) ? 0 : n.height; }
+    private static int size(Node n) { return (n == null) ? 0 : n.size; }
+
+    private static int compare(Card a, Card b) {
+        if (a.A_cur != b.A_cur) return Integer.compare(a.A_cur, b.A_cur);
+        if (a.H_cur != b.H_cur) return Integer.compare(a.H_cur, b.H_cur);
+        return Long.compare(a.entryTime, b.entryTime);
+    }
+
+    // --- Builds a node over (left, card, right), rotating once if unbalanced ---
+    private static Node balance(Card card, Node left, Node right) {
+        int hl = height(left), hr = height(right);
+        if (hl > hr + 1) {
+            if (height(left.left) >= height(left.right)) { // Left Left
+                return new Node(left.card, left.left, new Node(card, left.right, right));
+            }
+            Node lr = left.right; // Left Right
+            return new Node(lr.card, new Node(left.card, left.left, lr.left), new Node(card, lr.right, right));
+        }
+        if (hr > hl + 1) {
+            if (height(right.right) >= height(right.left)) { // Right Right
+                return new Node(right.card, new Node(card, left, right.left), right.right);
+            }
+            Node rl = right.left; // Right Left
+            return new Node(rl.card, new Node(card, left, rl.left), new Node(right.card, rl.right, right.right));
+        }
+        return new Node(card, left, right);
+    }
+
+    @Override
+    public void insert(Card card) { root = insert(root, card); }
+
+    private static Node insert(Node n, Card card) {
+        if (n == null) return new Node(card, null, null);
+        if (compare(card, n.card) < 0) return balance(n.card, insert(n.left, card), n.right);
+        return balance(n.card, n.left, insert(n.right, card));
+    }
+
+    @Override
+    public void delete(Card card) { root = delete(root, card); }
+
+    private static Node delete(Node n, Card card) {
+        if (n == null) return null;
+        int cmp = compare(card, n.card);
+        if (cmp < 0) return balance(n.card, delete(n.left, card), n.right);
+        if (cmp > 0) return balance(n.card, n.left, delete(n.right, card));
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        Node successor = n.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.card, n.left, deleteMin(n.right));
+    }
+
+    private static Node deleteMin(Node n) {
+        if (n.left == null) return n.right;
+        return balance(n.card, deleteMin(n.left), n.right);
+    }
+
+    @Override
+    public int getDeckMaxAttack() { return (root == null) ? 0 : root.aMax; }
+
+    @Override
+    public int getDeckMaxHealth() { return (root == null) ? 0 : root.hMax; }
+
+    // --- Searches ---
+    // In (A, H, entryTime) order the first card with A_cur >= aMin that passes
+    // the H test is the min A_cur, then min H_cur, then earliest entry.
+
+    /**
+     * First card with A_cur >= aMin and H_cur > hLimit (above) or H_cur <= hLimit (!above).
+     */
+    private static Card first(Node n, int aMin, int hLimit, boolean above) {
+        while (n != null) {
+            if (above ? n.hMax <= hLimit : n.hMin > hLimit) return null; // Nothing passes the H test
+            if (n.aMax < aMin) return null;
+            if (n.card.A_cur < aMin) { // n and its whole left side are too small
+                n = n.right;
+                continue;
+            }
+            Card inLeft = first(n.left, aMin, hLimit, above);
+            if (inLeft != null) return inLeft;
+            if (above ? n.card.H_cur > hLimit : n.card.H_cur <= hLimit) return n.card;
+            n = n.right;
+        }
+        return null;
+    }
+
+    /**
+     * Largest A_cur < aLimit among cards with H_cur > hLimit, or -1.
+     */
+    private static int lastAttackBelow(Node n, int aLimit, int hLimit) {
+        while (n != null) {
+            if (n.hMax <= hLimit) return -1;
+            if (n.card.A_cur >= aLimit) {
+                n = n.left;
+                continue;
+            }
+            int inRight = lastAttackBelow(n.right, aLimit, hLimit);
+            if (inRight >= 0) return inRight;
+            if (n.card.H_cur > hLimit) return n.card.A_cur;
+            n = n.left;
+        }
+        return -1;
+    }
+
+    // --- Candidate counting: subtree sizes sum an A_cur range, hMax/hMin settle whole subtrees ---
+
+    // Cards with A_cur >= aMin and H_cur > hLimit
+    private static int countAtLeast(Node n, int aMin, int hLimit) {
+        if (n == null || n.aMax < aMin || n.hMax <= hLimit) return 0;
+        if (n.card.A_cur < aMin) return countAtLeast(n.right, aMin, hLimit);
+        return countAtLeast(n.left, aMin, hLimit) + (n.card.H_cur > hLimit ? 1 : 0) + countAbove(n.right, hLimit);
+    }
+
+    // Cards with A_cur < aLimit and H_cur > hLimit
+    private static int countBelow(Node n, int aLimit, int hLimit) {
+        if (n == null || n.hMax <= hLimit) return 0;
+        if (n.card.A_cur >= aLimit) return countBelow(n.left, aLimit, hLimit);
+        return countAbove(n.left, hLimit) + (n.card.H_cur > hLimit ? 1 : 0) + countBelow(n.right, aLimit, hLimit);
+    }
+
+    // Cards of the whole subtree with H_cur > hLimit
+    private static int countAbove(Node n, int hLimit) {
+        if (n == null || n.hMax <= hLimit) return 0;
+        if (n.hMin > hLimit) return n.size;
+        return countAbove(n.left, hLimit) + (n.card.H_cur > hLimit ? 1 : 0) + countAbove(n.right, hLimit);
+    }
+
+    // Cards with A_cur >= aMin
+    private static int countAttackAtLeast(Node n, int aMin) {
+        int c = 0;
+        while (n != null) {
+            if (n.card.A_cur >= aMin) {
+                c += 1 + size(n.right);
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public int countCandidates(int priority, int strAtt, int strHp) {
+        switch (priority) {
+            case 1: return countAtLeast(root, strHp, strAtt);
+            case 2: return countBelow(root, strHp, strAtt);
+            case 3: return countAttackAtLeast(root, strHp) - countAtLeast(root, strHp, strAtt);
+            case 4: return (size(root) - countAttackAtLeast(root, strHp)) - countBelow(root, strHp, strAtt);
+            default: return 0;
+        }
+    }
+
+    @Override
+    public Card findBestP1(int strAtt, int strHp) {
+        return first(root, strHp, strAtt, true);
+    }
+
+    @Override
+    public Card findBestP2_Reverse(int strAtt, int strHp) {
+        int attack = lastAttackBelow(root, strHp, strAtt);
+        return (attack < 0) ? null : first(root, attack, strAtt, true);
+    }
+
+    @Override
+    public Card findBestP3(int strAtt, int strHp) {
+        return first(root, strHp, strAtt, false);
+    }
+
+    @Override
+    public Card findBestP4_Reverse() {
+        if (root == null) return null;
+        return first(root, root.aMax, Integer.MAX_VALUE, false);
+    }
+
+    @Override
+    public Card findForSteal(int attLimit, int hpLimit) {
+        if (attLimit == Integer.MAX_VALUE) return null;
+        return first(root, attLimit + 1, hpLimit, true);
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: ReplayDriver.java ---
+ * (Replays a command file through the same engine as Main, in-process,
+ *  timing every command: throughput, latency percentiles and peak heap)
+ * ======================================================================
+ *
+ * Usage: java ReplayDriver <input_file> <output_file> [Main flags...]
+ *   e.g. java WorkloadGenerator big.txt 1e7 --max-value 100000
+ *        java ReplayDriver big.txt big_out.txt --offline
+ * Latencies include one System.nanoTime() pair per command (~20-50 ns).
+ */
+public class ReplayDriver {
+
+    // --- Log-linear latency histogram: 64 sub-buckets per power of two (~1.6% error) ---
+    static class LatencyHistogram {
+        private static final int SUB_BITS = 6;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private final long[] counts = new long[64 * SUB_COUNT];
+        private long total = 0;
+        private long max = 0;
+
+        private static int index(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exp = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+            int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+            return ((exp - SUB_BITS + 1) << SUB_BITS) | sub;
+        }
+
+        // Smallest value that maps to the bucket
+        private static long lowerBound(int index) {
+            if (index < SUB_COUNT) return index;
+            int exp = (index >>> SUB_BITS) + SUB_BITS - 1;
+            long sub = index & (SUB_COUNT - 1);
+            return (1L << exp) | (sub << (exp - SUB_BITS));
+        }
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            counts[index(value)]++;
+            total++;
+            if (value > max) max = value;
+        }
+
+        long count() { return total; }
+        long max() { return max; }
+
+        long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(lowerBound(i), max);
+            }
+            return max;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java ReplayDriver <input_file> <output_file> [Main flags...]");
+            return;
+        }
+        String inputFile = args[0];
+        String outputFile = args[1];
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+        long gcCountBefore = gcCount();
+
+        Game game = Main.createGame(inputFile, args, 2);
+        LatencyHistogram latencies = new LatencyHistogram();
+        long start = System.nanoTime();
+        try (ResultWriter writer = ResultWriter.open(outputFile);
+             CommandReader reader = new CommandReader(inputFile)) {
+            Main.restoreCheckpoint(game, args, 2); // Timed with the run
+            while (true) {
+                long t0 = System.nanoTime();
+                boolean more = game.step(reader, writer);
+                long t1 = System.nanoTime();
+                if (!more) break;
+                latencies.record(t1 - t0);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long commands = latencies.count();
+        System.out.printf("%d commands in %.3f s: %.0f commands/sec%n", commands, seconds, commands / seconds);
+        System.out.printf("Latency (ns): p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+                latencies.percentile(50), latencies.percentile(90), latencies.percentile(99),
+                latencies.percentile(99.9), latencies.max());
+        System.out.printf("Peak heap: %.1f MB, %d GCs%n", peakHeapBytes() / (1024.0 * 1024.0), gcCount() - gcCountBefore);
+    }
+
+    // Sum of the per-pool peaks (an upper bound: pools need not peak at the same moment)
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
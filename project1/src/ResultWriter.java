@@ -0,0 +1,132 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: ResultWriter.java ---
+ * (Byte-level output: pre-encoded fragments and decimal ints are copied
+ *  into one reusable direct ByteBuffer, flushed through a FileChannel)
+ * (No Strings, no char encoding and no garbage per written line)
+ * (Optionally asynchronous: full buffers go to an AsyncChannelWriter thread)
+ * ======================================================================
+ *
+ * Main-style tools open it with ResultWriter.open(path), which reads
+ *   -Doutput.buffer=<bytes>   buffer size (default 256 KB async, 1 MB sync)
+ *   -Doutput.queue=<buffers>  ring depth of the writer thread (0 = write synchronously;
+ *                             default 4, or 0 on a single CPU where the thread only competes)
+ */
+public class ResultWriter implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int DEFAULT_ASYNC_BUFFER_SIZE = 1 << 18;
+    private static final int DEFAULT_QUEUE_DEPTH = (Runtime.getRuntime().availableProcessors() > 1) ? 4 : 0;
+
+    private final FileOutputStream out;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private final AsyncChannelWriter async; // null: flush() writes on the calling thread
+    private final byte[] digits = new byte[20]; // Long.MIN_VALUE has 19 digits + sign
+
+    public ResultWriter(String path) throws IOException {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ResultWriter(String path, int bufferSize) throws IOException {
+        this.out = new FileOutputStream(path);
+        this.channel = out.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(64, bufferSize));
+        this.async = null;
+    }
+
+    /**
+     * Asynchronous writer: queueDepth buffers of bufferSize bytes rotate
+     * between this thread and a writer thread (queueDepth 0 = synchronous).
+     */
+    public ResultWriter(String path, int bufferSize, int queueDepth) throws IOException {
+        this.out = new FileOutputStream(path);
+        this.channel = out.getChannel();
+        if (queueDepth > 0) {
+            this.async = new AsyncChannelWriter(channel, Math.max(64, bufferSize), queueDepth);
+            this.buffer = async.current();
+        } else {
+            this.async = null;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(64, bufferSize));
+        }
+    }
+
+    // --- Writer configured by -Doutput.buffer / -Doutput.queue (see header) ---
+    public static ResultWriter open(String path) throws IOException {
+        int queueDepth = Integer.getInteger("output.queue", DEFAULT_QUEUE_DEPTH);
+        int bufferSize = Integer.getInteger("output.buffer",
+                (queueDepth > 0) ? DEFAULT_ASYNC_BUFFER_SIZE : DEFAULT_BUFFER_SIZE);
+        return new ResultWriter(path, bufferSize, queueDepth);
+    }
+
+    // --- Encodes a constant fragment once (e.g. in a static final field) ---
+    public static byte[] encode(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void write(byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            if (!buffer.hasRemaining()) flush();
+            int n = Math.min(bytes.length - off, buffer.remaining());
+            buffer.put(bytes, off, n);
+            off += n;
+        }
+    }
+
+    public void write(byte b) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put(b);
+    }
+
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        int i = digits.length;
+        if (value >= 0) {
+            do {
+                digits[--i] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+        } else { // Work on negatives so Long.MIN_VALUE does not overflow
+            do {
+                digits[--i] = (byte) ('0' - (value % 10));
+                value /= 10;
+            } while (value != 0);
+            digits[--i] = '-';
+        }
+        int n = digits.length - i;
+        if (buffer.remaining() < n) flush();
+        buffer.put(digits, i, n);
+    }
+
+    // Async: hands the buffer over (it is written later, in order)
+    public void flush() throws IOException {
+        if (async != null) {
+            buffer = async.publish();
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (async != null) async.close();
+            else flush();
+        } finally {
+            out.close(); // Also closes the channel
+        }
+    }
+}
@@ -0,0 +1,587 @@
+/*
+ * ======================================================================
+ * --- COMPONENT: SegmentDeckIndex.java ---
+ * (Deck index for offline runs, where a pre-scan of the input bounds
+ *  every A_cur/H_cur value: A_cur <= max drawn attack, H_cur <= max drawn health)
+ * (Outer: dense segment tree over attack values, storing MAX H and MIN H)
+ * (Inner: one sparse segment tree over health values per attack value)
+ * (Leaves hold a queue of the cards sharing one (A_cur, H_cur) cell,
+ *  ordered by entryTime, so every tie-break is "take the queue head")
+ * (Small inner sets: like AttackTree's small mode, an attack value with at most
+ *  smallSetThreshold cards keeps them in a pooled block sorted by (H_cur, entryTime)
+ *  instead of a tree 17+ levels deep; promoted past the threshold, demoted at half)
+ * ======================================================================
+ */
+public class SegmentDeckIndex implements DeckIndex {
+
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // --- Outer: dense segment tree, node 1 is the root, leaves at attackSpan + A_cur ---
+    private final int attackSpan; // Power of two > max attack
+    // --- Node i's [2 * i]: max H_cur of its cards (0 if empty), [2 * i + 1]: min H_cur (MAX_VALUE
+    // --- if empty), side by side because every update reads and writes both ---
+    private final int[] hRange;
+    // --- Per attack value a: BUCKET ints of buckets[] from a * BUCKET, read together on every update ---
+    private static final int BUCKET = 3;
+    private static final int ROOT = 0; // Root of its health tree (NIL if empty or a small set)
+    private static final int BLOCK = 1; // Its small block (NIL if a tree or empty)
+    private static final int SIZE = 2; // Cards in its small block
+    private final int[] buckets;
+
+    // --- Inner: pooled sparse segment trees over [0, healthSpan). A node is NODE
+    // --- consecutive ints of inner[] (its id is the offset), so each level of a
+    // --- descent reads one cache line; a leaf keeps its card queue in LEFT/RIGHT ---
+    private static final int NODE = 3;
+    private static final int LEFT = 0, RIGHT = 1, COUNT = 2;
+    private static final int HEAD = LEFT, TAIL = RIGHT; // Leaves only
+    private final int healthSpan; // Power of two > max health
+    private int[] inner;
+    private int innerNext = NODE;
+    private int innerFree = NIL; // Chained through LEFT
+
+    // --- Card queue slots ---
+    private Card[] qCard;
+    private int[] qNext;
+    private int queueNext = 1;
+    private int queueFree = NIL; // Chained through qNext[]
+
+    // --- Small inner sets: block b holds slots [b * smallSetThreshold, (b + 1) * smallSetThreshold) ---
+    // --- (larger than AttackTree's default: a health tree here costs ~log2(healthSpan) pooled
+    // --- nodes per card, so promoting late pays off; blocks are fixed-size, hence not larger) ---
+    public static final int DEFAULT_SMALL_SET_THRESHOLD = 64;
+    private final int smallSetThreshold; // 0: always a tree
+    private int[] sHealth; // H_cur of the slot's card; a free block is chained through its first slot
+    private Card[] sCard;
+    private int blockNext = 1;
+    private int blockFree = NIL;
+
+    // --- Result of the last locate() ---
+    private int locAttack;
+
+    public SegmentDeckIndex(int maxAttack, int maxHealth) {
+        this(maxAttack, maxHealth, DEFAULT_SMALL_SET_THRESHOLD);
+    }
+
+    public SegmentDeckIndex(int maxAttack, int maxHealth, int smallSetThreshold) {
+        this.attackSpan = spanFor(maxAttack);
+        this.healthSpan = spanFor(maxHealth);
+        this.smallSetThreshold = Math.max(0, smallSetThreshold);
+
+        hRange = new int[4 * attackSpan];
+        for (int i = 1; i < hRange.length; i += 2) hRange[i] = Integer.MAX_VALUE;
+        buckets = new int[attackSpan * BUCKET];
+
+        inner = new int[INITIAL_CAPACITY * NODE];
+        qCard = new Card[INITIAL_CAPACITY];
+        qNext = new int[INITIAL_CAPACITY];
+
+        sHealth = new int[INITIAL_CAPACITY * this.smallSetThreshold];
+        sCard = new Card[sHealth.length];
+    }
+
+    // Smallest power of two strictly greater than maxValue
+    private static int spanFor(int maxValue) {
+        int span = 1;
+        while (span <= maxValue) span <<= 1;
+        return span;
+    }
+
+    // --- Slot allocation ---
+
+    private int allocInner() {
+        int n;
+        if (innerFree != NIL) {
+            n = innerFree;
+            innerFree = inner[n + LEFT];
+        } else {
+            if (innerNext == inner.length) inner = grow(inner, inner.length * 2);
+            n = innerNext;
+            innerNext += NODE;
+        }
+        inner[n + LEFT] = NIL;
+        inner[n + RIGHT] = NIL;
+        inner[n + COUNT] = 0;
+        return n;
+    }
+    private void freeInner(int n) {
+        inner[n + LEFT] = innerFree;
+        innerFree = n;
+    }
+
+    private int allocQueueSlot(Card card) {
+        int q;
+        if (queueFree != NIL) {
+            q = queueFree;
+            queueFree = qNext[q];
+        } else {
+            if (queueNext == qNext.length) {
+                int cap = qNext.length * 2;
+                qNext = grow(qNext, cap);
+                Card[] c = new Card[cap];
+                System.arraycopy(qCard, 0, c, 0, qCard.length);
+                qCard = c;
+            }
+            q = queueNext++;
+        }
+        qCard[q] = card;
+        qNext[q] = NIL;
+        return q;
+    }
+    private void freeQueueSlot(int q) {
+        qCard[q] = null;
+        qNext[q] = queueFree;
+        queueFree = q;
+    }
+
+    private int allocBlock() {
+        int b;
+        if (blockFree != NIL) {
+            b = blockFree;
+            blockFree = sHealth[b * smallSetThreshold];
+        } else {
+            if ((blockNext + 1) * smallSetThreshold > sHealth.length) {
+                int cap = sHealth.length * 2;
+                sHealth = grow(sHealth, cap);
+                Card[] c = new Card[cap];
+                System.arraycopy(sCard, 0, c, 0, sCard.length);
+                sCard = c;
+            }
+            b = blockNext++;
+        }
+        return b;
+    }
+    private void freeBlock(int b) { // Its cards are already cleared
+        sHealth[b * smallSetThreshold] = blockFree;
+        blockFree = b;
+    }
+
+    private static int[] grow(int[] a, int cap) {
+        int[] b = new int[cap];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+
+    // ---
+    // --- Leaf queues (entryTime ASC) ---
+    // ---
+
+    private void enqueue(int leaf, Card card) {
+        int q = allocQueueSlot(card);
+        int tail = inner[leaf + TAIL];
+        if (tail == NIL) {
+            inner[leaf + HEAD] = q;
+            inner[leaf + TAIL] = q;
+        } else if (qCard[tail].entryTime <= card.entryTime) {
+            // Common case: entryTime only grows, so new cards go last
+            qNext[tail] = q;
+            inner[leaf + TAIL] = q;
+        } else if (card.entryTime < qCard[inner[leaf + HEAD]].entryTime) {
+            qNext[q] = inner[leaf + HEAD];
+            inner[leaf + HEAD] = q;
+        } else {
+            int p = inner[leaf + HEAD];
+            while (qCard[qNext[p]].entryTime <= card.entryTime) p = qNext[p];
+            qNext[q] = qNext[p];
+            qNext[p] = q;
+        }
+    }
+
+    private void dequeue(int leaf, Card card) {
+        int prev = NIL, q = inner[leaf + HEAD];
+        while (q != NIL && qCard[q] != card) { prev = q; q = qNext[q]; }
+        if (q == NIL) return;
+        if (prev == NIL) inner[leaf + HEAD] = qNext[q];
+        else qNext[prev] = qNext[q];
+        if (inner[leaf + TAIL] == q) inner[leaf + TAIL] = prev;
+        freeQueueSlot(q);
+    }
+
+
+    // ---
+    // --- Inner (health) segment trees ---
+    // ---
+
+    private int innerInsert(int root, int h, Card card) {
+        if (root == NIL) root = allocInner();
+        int n = root, lo = 0, hi = healthSpan;
+        inner[n + COUNT]++;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            int side;
+            if (h < mid) {
+                side = LEFT;
+                hi = mid;
+            } else {
+                side = RIGHT;
+                lo = mid;
+            }
+            int child = inner[n + side];
+            if (child == NIL) {
+                child = allocInner(); // May replace inner[]
+                inner[n + side] = child;
+            }
+            n = child;
+            inner[n + COUNT]++;
+        }
+        enqueue(n, card);
+        return root;
+    }
+
+    // Precondition: the card is in this tree. Empty nodes are freed on the way up.
+    private int innerRemove(int n, int lo, int hi, int h, Card card) {
+        if (hi - lo == 1) {
+            dequeue(n, card);
+        } else {
+            int mid = (lo + hi) >>> 1;
+            if (h < mid) inner[n + LEFT] = innerRemove(inner[n + LEFT], lo, mid, h, card);
+            else inner[n + RIGHT] = innerRemove(inner[n + RIGHT], mid, hi, h, card);
+        }
+        if (--inner[n + COUNT] == 0) {
+            freeInner(n);
+            return NIL;
+        }
+        return n;
+    }
+
+    // Leaf with the smallest H_cur > hpLimit, or NIL
+    private int innerFirstAbove(int n, int lo, int hi, int hpLimit) {
+        if (n == NIL || hi - 1 <= hpLimit) return NIL; // Pruning
+        if (hi - lo == 1) return n;
+        int mid = (lo + hi) >>> 1;
+        int found = innerFirstAbove(inner[n + LEFT], lo, mid, hpLimit);
+        return (found != NIL) ? found : innerFirstAbove(inner[n + RIGHT], mid, hi, hpLimit);
+    }
+
+    // Moves the cards of tree n to sHealth/sCard from slot at on, in (H_cur, entryTime)
+    // order, and frees the tree (span: size of n's health range, 1 at a leaf)
+    private int innerDrain(int n, int span, int at) {
+        if (n == NIL) return at;
+        if (span == 1) {
+            for (int q = inner[n + HEAD]; q != NIL; ) {
+                int next = qNext[q];
+                sCard[at] = qCard[q];
+                sHealth[at++] = qCard[q].H_cur;
+                freeQueueSlot(q);
+                q = next;
+            }
+        } else {
+            at = innerDrain(inner[n + LEFT], span >>> 1, at);
+            at = innerDrain(inner[n + RIGHT], span >>> 1, at);
+        }
+        freeInner(n);
+        return at;
+    }
+
+    // Leaf with the smallest H_cur
+    private int innerFirst(int n) {
+        for (int span = healthSpan; span > 1; span >>>= 1) {
+            n = (inner[n + LEFT] != NIL) ? inner[n + LEFT] : inner[n + RIGHT];
+        }
+        return n;
+    }
+
+    private int innerMinValue(int n) {
+        int lo = 0, hi = healthSpan;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (inner[n + LEFT] != NIL) { n = inner[n + LEFT]; hi = mid; }
+            else { n = inner[n + RIGHT]; lo = mid; }
+        }
+        return lo;
+    }
+    private int innerMaxValue(int n) {
+        int lo = 0, hi = healthSpan;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (inner[n + RIGHT] != NIL) { n = inner[n + RIGHT]; lo = mid; }
+            else { n = inner[n + LEFT]; hi = mid; }
+        }
+        return lo;
+    }
+
+
+    // ---
+    // --- Small inner sets ---
+    // ---
+
+    // Index in [base, base + n) of the first card with H_cur > hpLimit (base + n if none)
+    private int smallFirstAbove(int base, int n, int hpLimit) {
+        int lo = base, hi = base + n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sHealth[mid] <= hpLimit) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void smallInsert(int a, Card card) {
+        int at = a * BUCKET;
+        int b = buckets[at + BLOCK];
+        if (b == NIL) {
+            b = allocBlock();
+            buckets[at + BLOCK] = b;
+        }
+        int base = b * smallSetThreshold, h = card.H_cur;
+        int i = base + buckets[at + SIZE]++;
+        while (i > base && (sHealth[i - 1] > h
+                || (sHealth[i - 1] == h && sCard[i - 1].entryTime > card.entryTime))) { // Shift the larger cards right
+            sHealth[i] = sHealth[i - 1];
+            sCard[i] = sCard[i - 1];
+            i--;
+        }
+        sHealth[i] = h;
+        sCard[i] = card;
+    }
+
+    private void smallRemove(int a, Card card) {
+        int at = a * BUCKET;
+        int b = buckets[at + BLOCK], base = b * smallSetThreshold, end = base + buckets[at + SIZE];
+        int i = smallFirstAbove(base, buckets[at + SIZE], card.H_cur - 1);
+        while (i < end && sCard[i] != card) {
+            if (sHealth[i] != card.H_cur) return; // Not in this set
+            i++;
+        }
+        if (i == end) return;
+        System.arraycopy(sHealth, i + 1, sHealth, i, end - i - 1);
+        System.arraycopy(sCard, i + 1, sCard, i, end - i - 1);
+        sCard[end - 1] = null;
+        if (--buckets[at + SIZE] == 0) {
+            freeBlock(b);
+            buckets[at + BLOCK] = NIL;
+        }
+    }
+
+    // Small set of attack value a is full: move it to a health tree
+    private void promote(int a) {
+        int at = a * BUCKET;
+        int b = buckets[at + BLOCK], base = b * smallSetThreshold, n = buckets[at + SIZE];
+        int root = NIL;
+        for (int i = base; i < base + n; i++) {
+            root = innerInsert(root, sHealth[i], sCard[i]);
+            sCard[i] = null;
+        }
+        freeBlock(b);
+        buckets[at + BLOCK] = NIL;
+        buckets[at + SIZE] = 0;
+        buckets[at + ROOT] = root;
+    }
+
+    // Health tree of attack value a has shrunk to half the threshold: back to a small set
+    private void demote(int a) {
+        int at = a * BUCKET;
+        int b = allocBlock(), base = b * smallSetThreshold;
+        buckets[at + SIZE] = innerDrain(buckets[at + ROOT], healthSpan, base) - base;
+        buckets[at + BLOCK] = b;
+        buckets[at + ROOT] = NIL;
+    }
+
+    private void removeFromBucket(int a, Card card) {
+        int at = a * BUCKET;
+        if (buckets[at + BLOCK] != NIL) {
+            smallRemove(a, card);
+        } else {
+            buckets[at + ROOT] = innerRemove(buckets[at + ROOT], 0, healthSpan, card.H_cur, card);
+            if (buckets[at + ROOT] != NIL && inner[buckets[at + ROOT] + COUNT] <= smallSetThreshold / 2) demote(a);
+        }
+        afterBucketRemoval(a, card.H_cur);
+    }
+
+
+    // ---
+    // --- Outer (attack) segment tree ---
+    // ---
+
+    // Sets the leaf of attack value a, then its ancestors (stops once nothing changes)
+    private void setBucket(int a, int bucketMaxH, int bucketMinH) {
+        int i = attackSpan + a;
+        if (hRange[2 * i] == bucketMaxH && hRange[2 * i + 1] == bucketMinH) return;
+        hRange[2 * i] = bucketMaxH;
+        hRange[2 * i + 1] = bucketMinH;
+        for (i >>= 1; i >= 1; i >>= 1) {
+            int mx = Math.max(hRange[4 * i], hRange[4 * i + 2]);
+            int mn = Math.min(hRange[4 * i + 1], hRange[4 * i + 3]);
+            if (hRange[2 * i] == mx && hRange[2 * i + 1] == mn) break;
+            hRange[2 * i] = mx;
+            hRange[2 * i + 1] = mn;
+        }
+    }
+
+    // After a card with H_cur h left bucket a: only rescan the inner tree if h was an extreme
+    private void afterBucketRemoval(int a, int h) {
+        int at = a * BUCKET;
+        int root = buckets[at + ROOT], b = buckets[at + BLOCK];
+        if (root == NIL && b == NIL) {
+            setBucket(a, 0, Integer.MAX_VALUE);
+            return;
+        }
+        int leaf = attackSpan + a;
+        int mx = hRange[2 * leaf], mn = hRange[2 * leaf + 1];
+        if (b != NIL) {
+            int base = b * smallSetThreshold;
+            mx = sHealth[base + buckets[at + SIZE] - 1];
+            mn = sHealth[base];
+        } else {
+            if (h == mx) mx = innerMaxValue(root);
+            if (h == mn) mn = innerMinValue(root);
+        }
+        setBucket(a, mx, mn);
+    }
+
+    // (The three searches below start at the leaf of from/to and climb only until the
+    //  next segment over can hold the answer, then descend into it, so most of the nodes
+    //  they read sit next to that leaf instead of on a path down from the root)
+
+    // Smallest a >= from whose cards include some H_cur > hpLimit
+    private int firstMaxAbove(int from, int hpLimit) {
+        if (from >= attackSpan) return -1;
+        int node = attackSpan + from;
+        while (hRange[2 * node] <= hpLimit) {
+            while ((node & 1) == 1) node >>= 1; // A right child's parent ends where it does
+            if (node == 0) return -1; // Climbed past the root
+            node++; // The segment just after
+        }
+        while (node < attackSpan) {
+            node = 2 * node;
+            if (hRange[2 * node] <= hpLimit) node++;
+        }
+        return node - attackSpan;
+    }
+
+    // Largest a <= to whose cards include some H_cur > hpLimit
+    private int lastMaxAbove(int to, int hpLimit) {
+        if (to < 0) return -1;
+        int node = attackSpan + Math.min(to, attackSpan - 1);
+        while (hRange[2 * node] <= hpLimit) {
+            while ((node & 1) == 0) node >>= 1; // A left child's parent starts where it does
+            if (node == 1) return -1; // Climbed to the root
+            node--; // The segment just before
+        }
+        while (node < attackSpan) {
+            node = 2 * node + 1;
+            if (hRange[2 * node] <= hpLimit) node--;
+        }
+        return node - attackSpan;
+    }
+
+    // Smallest a >= from whose cards include some H_cur <= hpLimit
+    private int firstMinAtMost(int from, int hpLimit) {
+        if (from >= attackSpan) return -1;
+        int node = attackSpan + from;
+        while (hRange[2 * node + 1] > hpLimit) {
+            while ((node & 1) == 1) node >>= 1;
+            if (node == 0) return -1;
+            node++;
+        }
+        while (node < attackSpan) {
+            node = 2 * node;
+            if (hRange[2 * node + 1] > hpLimit) node++;
+        }
+        return node - attackSpan;
+    }
+
+    // Largest non-empty a, or -1
+    private int lastNonEmpty() {
+        if (hRange[3] == Integer.MAX_VALUE) return -1; // The root's min
+        int node = 1;
+        while (node < attackSpan) {
+            node = (hRange[4 * node + 3] != Integer.MAX_VALUE) ? 2 * node + 1 : 2 * node;
+        }
+        return node - attackSpan;
+    }
+
+    // "A_cur > limit" as a lower bound, without overflowing at MAX_VALUE
+    private int above(int limit) {
+        if (limit < 0) return 0;
+        return (limit >= attackSpan) ? attackSpan : limit + 1;
+    }
+
+    /**
+     * Finds the answer to a search (priority 1-4, or 0 for steal).
+     * @return the card, or null; its attack value is left in locAttack.
+     */
+    private Card locate(int priority, int att, int hp) {
+        int a;
+        switch (priority) {
+            case 1: a = firstMaxAbove(Math.max(hp, 0), att); break;
+            case 2: a = lastMaxAbove(hp - 1, att); break;
+            case 3: a = firstMinAtMost(Math.max(hp, 0), att); break;
+            case 4: a = lastNonEmpty(); break;
+            default: a = firstMaxAbove(above(att), hp); break; // Steal
+        }
+        if (a < 0) return null;
+        locAttack = a;
+        int at = a * BUCKET;
+        int b = buckets[at + BLOCK];
+        if (b != NIL) {
+            int base = b * smallSetThreshold, n = buckets[at + SIZE];
+            int i;
+            switch (priority) {
+                case 1: case 2: i = smallFirstAbove(base, n, att); break;
+                case 3: case 4: i = base; break;
+                default: i = smallFirstAbove(base, n, hp); break;
+            }
+            return (i < base + n) ? sCard[i] : null;
+        }
+        int root = buckets[at + ROOT], leaf;
+        switch (priority) {
+            case 1: case 2: leaf = innerFirstAbove(root, 0, healthSpan, att); break;
+            case 3: case 4: leaf = innerFirst(root); break;
+            default: leaf = innerFirstAbove(root, 0, healthSpan, hp); break;
+        }
+        return (leaf == NIL) ? null : qCard[inner[leaf + HEAD]];
+    }
+
+
+    // ---
+    // --- DeckIndex ---
+    // ---
+
+    public int getDeckMaxAttack() {
+        int a = lastNonEmpty();
+        return (a < 0) ? 0 : a;
+    }
+    public int getDeckMaxHealth() { return hRange[2]; } // The root's max
+
+    // The pre-scanned range: every value below its span
+    public boolean accepts(int attack, int health) {
+        return attack >= 0 && attack < attackSpan && health >= 0 && health < healthSpan;
+    }
+
+    public void insert(Card card) {
+        int a = card.A_cur, h = card.H_cur;
+        if (!accepts(a, h)) {
+            throw new IllegalArgumentException("Card " + card.name + " (" + a + ", " + h
+                    + ") is outside the pre-scanned attack/health range");
+        }
+        int at = a * BUCKET;
+        if (buckets[at + BLOCK] != NIL && buckets[at + SIZE] == smallSetThreshold) promote(a);
+        if (buckets[at + BLOCK] != NIL || (buckets[at + ROOT] == NIL && smallSetThreshold > 0)) smallInsert(a, card);
+        else buckets[at + ROOT] = innerInsert(buckets[at + ROOT], h, card);
+        int leaf = attackSpan + a;
+        setBucket(a, Math.max(hRange[2 * leaf], h), Math.min(hRange[2 * leaf + 1], h));
+    }
+
+    public void delete(Card card) {
+        int a = card.A_cur;
+        if (a < 0 || a >= attackSpan) return;
+        int at = a * BUCKET;
+        if (buckets[at + ROOT] == NIL && buckets[at + BLOCK] == NIL) return;
+        removeFromBucket(a, card);
+    }
+
+    @Override
+    public Card removeBest(int priority, int strAtt, int strHp) {
+        Card card = locate(priority, strAtt, strHp);
+        if (card != null) removeFromBucket(locAttack, card);
+        return card;
+    }
+
+    public Card findBestP1(int strAtt, int strHp) { return locate(1, strAtt, strHp); }
+    public Card findBestP2_Reverse(int strAtt, int strHp) { return locate(2, strAtt, strHp); }
+    public Card findBestP3(int strAtt, int strHp) { return locate(3, strAtt, strHp); }
+    public Card findBestP4_Reverse() { return locate(4, 0, 0); }
+    public Card findForSteal(int attLimit, int hpLimit) { return locate(0, attLimit, hpLimit); }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/*
+ * ======================================================================
+ * --- COMPONENT: WorkloadGenerator.java ---
+ * (Writes large random Nightpass command files for load tests; streams
+ *  through ResultWriter, so 1e8 commands need no more memory than 10)
+ * ======================================================================
+ *
+ * Usage: java WorkloadGenerator <output_file> <commands> [--seed S] [--max-value V]
+ *            [--dist uniform|skewed] [--max-heal H] [--heal-rate P]
+ *            [--mix draw:battle:steal:deck:discard:winning]
+ *   --max-value  Upper bound of card and stranger A/H (default 50; small values mean many ties)
+ *   --dist       uniform on [1, V], or skewed (V * u^3: mostly small values, a few large ones)
+ *   --max-heal   Largest heal pool (default 3 * V)
+ *   --heal-rate  Fraction of battles with a non-zero heal pool (default 0.33)
+ *   --mix        Relative command weights (default 40:40:10:4:3:3)
+ * The same arguments and seed always produce the same file.
+ */
+public class WorkloadGenerator {
+
+    private static final byte NEWLINE = '\n';
+    private static final byte SPACE = ' ';
+    private static final byte[] W_DRAW_CARD = ResultWriter.encode("draw_card C");
+    private static final byte[] W_BATTLE = ResultWriter.encode("battle ");
+    private static final byte[] W_STEAL_CARD = ResultWriter.encode("steal_card ");
+    private static final byte[] W_DECK_COUNT = ResultWriter.encode("deck_count\n");
+    private static final byte[] W_DISCARD_PILE_COUNT = ResultWriter.encode("discard_pile_count\n");
+    private static final byte[] W_FIND_WINNING = ResultWriter.encode("find_winning\n");
+
+    private final SplittableRandom random;
+    private final int maxValue;
+    private final boolean skewed;
+    private final int maxHeal;
+    private final double healRate;
+    private final int[] cumulativeMix = new int[6];
+    private long cardCounter = 0;
+
+    public WorkloadGenerator(long seed, int maxValue, boolean skewed, int maxHeal, double healRate, int[] mix) {
+        this.random = new SplittableRandom(seed);
+        this.maxValue = Math.max(1, maxValue);
+        this.skewed = skewed;
+        this.maxHeal = Math.max(0, maxHeal);
+        this.healRate = healRate;
+        int sum = 0;
+        for (int i = 0; i < cumulativeMix.length; i++) {
+            sum += (i < mix.length) ? Math.max(0, mix[i]) : 0;
+            cumulativeMix[i] = sum;
+        }
+        if (sum == 0) throw new IllegalArgumentException("Command mix has no positive weight");
+    }
+
+    // A/H value in [1, maxValue]
+    private int value() {
+        if (!skewed) return 1 + random.nextInt(maxValue);
+        double u = random.nextDouble();
+        return 1 + (int) (maxValue * u * u * u * (1 - 1e-9));
+    }
+
+    /**
+     * Writes the given number of commands.
+     */
+    public void generate(ResultWriter writer, long commands) throws IOException {
+        int total = cumulativeMix[cumulativeMix.length - 1];
+        for (long c = 0; c < commands; c++) {
+            int pick = random.nextInt(total);
+            if (pick < cumulativeMix[0]) {
+                writer.write(W_DRAW_CARD);
+                writer.writeLong(cardCounter++);
+                writer.write(SPACE);
+                writer.writeInt(value());
+                writer.write(SPACE);
+                writer.writeInt(value());
+                writer.write(NEWLINE);
+            } else if (pick < cumulativeMix[1]) {
+                writer.write(W_BATTLE);
+                writer.writeInt(value());
+                writer.write(SPACE);
+                writer.writeInt(value());
+                writer.write(SPACE);
+                boolean heals = maxHeal > 0 && random.nextDouble() < healRate;
+                writer.writeInt(heals ? 1 + random.nextInt(maxHeal) : 0);
+                writer.write(NEWLINE);
+            } else if (pick < cumulativeMix[2]) {
+                writer.write(W_STEAL_CARD);
+                writer.writeInt(random.nextInt(maxValue + 1));
+                writer.write(SPACE);
+                writer.writeInt(random.nextInt(maxValue + 1));
+                writer.write(NEWLINE);
+            } else if (pick < cumulativeMix[3]) {
+                writer.write(W_DECK_COUNT);
+            } else if (pick < cumulativeMix[4]) {
+                writer.write(W_DISCARD_PILE_COUNT);
+            } else {
+                writer.write(W_FIND_WINNING);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java WorkloadGenerator <output_file> <commands> [--seed S] [--max-value V] "
+                    + "[--dist uniform|skewed] [--max-heal H] [--heal-rate P] [--mix d:b:s:dc:dp:fw]");
+            return;
+        }
+        String outputFile = args[0];
+        long commands = (long) Double.parseDouble(args[1]); // Accepts 1e8
+        long seed = 250;
+        int maxValue = 50;
+        boolean skewed = false;
+        int maxHeal = -1;
+        double healRate = 0.33;
+        int[] mix = {40, 40, 10, 4, 3, 3};
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("--max-value") && i + 1 < args.length) maxValue = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--dist") && i + 1 < args.length) skewed = args[++i].equals("skewed");
+            else if (args[i].equals("--max-heal") && i + 1 < args.length) maxHeal = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--heal-rate") && i + 1 < args.length) healRate = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--mix") && i + 1 < args.length) {
+                String[] parts = args[++i].split(":");
+                mix = new int[parts.length];
+                for (int j = 0; j < parts.length; j++) mix[j] = Integer.parseInt(parts[j]);
+            }
+        }
+        if (maxHeal < 0) maxHeal = (int) Math.min(Integer.MAX_VALUE, 3L * maxValue);
+
+        long start = System.nanoTime();
+        WorkloadGenerator generator = new WorkloadGenerator(seed, maxValue, skewed, maxHeal, healRate, mix);
+        try (ResultWriter writer = ResultWriter.open(outputFile)) {
+            generator.generate(writer, commands);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d commands (%d cards) written to %s in %.3f s%n",
+                commands, generator.cardCounter, outputFile, seconds);
+    }
+}
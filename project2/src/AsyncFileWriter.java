@@ -0,0 +1,206 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Output writer used by Main in place of BufferedWriter(FileWriter).
+ * Text is encoded to UTF-8 into byte buffers, and full buffers go to a writer
+ * thread through a bounded single-producer/single-consumer ring, so command
+ * processing and disk writes overlap. Buffers are written in the order they
+ * were filled, so the output is the same as with a BufferedWriter.
+ *
+ * Sizes come from -Doutput.buffer=<bytes> (default 262144) and
+ * -Doutput.queue=<buffers> (0 writes on the calling thread; default 4, or 0 on
+ * a single CPU where the writer thread would only compete with the engine).
+ */
+public class AsyncFileWriter extends Writer {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    private static final int DEFAULT_QUEUE_DEPTH = (Runtime.getRuntime().availableProcessors() > 1) ? 4 : 0;
+    private static final long PARK_NANOS = 10_000_000; //safety re-check only: unpark() permits make waking exact
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final FileOutputStream out;
+    //ring: buffer number s lives in slots[s % slots.length]
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final Thread writerThread; //null when writing synchronously
+    private volatile Thread producerThread;
+    private volatile long published = 0; //buffers handed over, advanced by the producer only
+    private volatile long written = 0; //buffers written out, advanced by the writer thread only
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+
+    private byte[] buffer; //the slot being filled
+    private int pos;
+    private char pendingHigh = 0; //first half of a surrogate pair split across writes
+
+    public static AsyncFileWriter open(String path) throws IOException {
+        return new AsyncFileWriter(path,
+                Integer.getInteger("output.buffer", DEFAULT_BUFFER_SIZE),
+                Integer.getInteger("output.queue", DEFAULT_QUEUE_DEPTH));
+    }
+
+    public AsyncFileWriter(String path, int bufferSize, int queueDepth) throws IOException {
+        this.out = new FileOutputStream(path);
+        int depth = (queueDepth > 0) ? Math.max(2, queueDepth) : 1;
+        this.slots = new byte[depth][Math.max(16, bufferSize)];
+        this.lengths = new int[depth];
+        this.buffer = slots[0];
+        if (queueDepth > 0) {
+            writerThread = new Thread(this::drain, "output-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        } else {
+            writerThread = null;
+        }
+    }
+
+    public void newLine() throws IOException {
+        write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length());
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80 && pendingHigh == 0 && pos < buffer.length) buffer[pos++] = (byte) c; //ASCII fast path
+            else putChar(c);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) putChar(cbuf[i]);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        putChar((char) c);
+    }
+
+    //UTF-8, unpaired surrogates become '?' like the JDK encoder
+    private void putChar(char c) throws IOException {
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                putByte(0xF0 | (cp >> 18));
+                putByte(0x80 | ((cp >> 12) & 0x3F));
+                putByte(0x80 | ((cp >> 6) & 0x3F));
+                putByte(0x80 | (cp & 0x3F));
+                return;
+            }
+            putByte('?');
+        }
+        if (c < 0x80) {
+            putByte(c);
+        } else if (c < 0x800) {
+            putByte(0xC0 | (c >> 6));
+            putByte(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else if (Character.isLowSurrogate(c)) {
+            putByte('?');
+        } else {
+            putByte(0xE0 | (c >> 12));
+            putByte(0x80 | ((c >> 6) & 0x3F));
+            putByte(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        if (pos == buffer.length) publish();
+        buffer[pos++] = (byte) b;
+    }
+
+    //hands the filled part of the buffer over and continues in the next free slot
+    private void publish() throws IOException {
+        checkFailure();
+        if (writerThread == null) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+            return;
+        }
+        producerThread = Thread.currentThread();
+        lengths[(int) (published % slots.length)] = pos;
+        published++; //volatile write: the bytes are visible to the writer thread from here on
+        LockSupport.unpark(writerThread);
+        while (published - written >= slots.length) { //next slot is still queued
+            checkFailure();
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        buffer = slots[(int) (published % slots.length)];
+        pos = 0;
+    }
+
+    //writer thread: writes the published buffers in sequence until closed
+    private void drain() {
+        try {
+            while (true) {
+                long w = written;
+                if (w == published) {
+                    if (closed && w == published) return; //closed is set after the last publish
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                    continue;
+                }
+                int slot = (int) (w % slots.length);
+                out.write(slots[slot], 0, lengths[slot]);
+                written = w + 1;
+                Thread producer = producerThread;
+                if (producer != null) LockSupport.unpark(producer);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) throw e;
+    }
+
+    //publishes what is buffered and waits until it is written
+    @Override
+    public void flush() throws IOException {
+        if (closed) return;
+        if (pos > 0) publish();
+        while (written != published) {
+            checkFailure();
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            if (pendingHigh != 0) {
+                pendingHigh = 0;
+                putByte('?');
+            }
+            if (pos > 0) publish();
+            closed = true;
+            if (writerThread != null) {
+                LockSupport.unpark(writerThread);
+                boolean interrupted = false;
+                while (writerThread.isAlive()) {
+                    try {
+                        writerThread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+            checkFailure();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+}
@@ -42,6 +42,7 @@ public class AvlTree {
     }
     /*
     compare method, first compares according to composite score, then ids
+    (num follows the lexicographic order of the ids, see IdRegistry.sorted)
     returns 1 if f1 is greater
      */
     int compare(Freelancer f1, Freelancer f2){
@@ -49,9 +50,9 @@ public class AvlTree {
             return 1;
         else if (f1.compositeScore<f2.compositeScore)
             return -1;
-        if (f1.id.compareTo(f2.id)<0)
+        if (f1.num<f2.num)
             return 1;
-        else if (f1.id.compareTo(f2.id)>0) return -1;
+        else if (f1.num>f2.num) return -1;
         return 0;
     }
 
@@ -168,18 +169,18 @@ public class AvlTree {
         else
             return root;
     }
-    public ArrayList<Freelancer> findBest(int n,HashTable<Freelancer> blacklisted){
+    public ArrayList<Freelancer> findBest(int n,IntSet blacklisted){
         ArrayList<Freelancer> best = new ArrayList<>();
         findBestHelper(root,n,best,blacklisted);
         return best;
     }
     //doesnt add to best if blacklisted
-    private void findBestHelper(Node node,int n, ArrayList<Freelancer> best,HashTable<Freelancer> blacklisted){
+    private void findBestHelper(Node node,int n, ArrayList<Freelancer> best,IntSet blacklisted){
         if (node==null || best.size()>=n){
             return;
         }
         findBestHelper(node.right,n,best,blacklisted);
-        if (best.size()<n && !blacklisted.containsKey(node.val.id)){
+        if (best.size()<n && !blacklisted.contains(node.val.num)){
             best.add(node.val);
         }
         findBestHelper(node.left,n,best,blacklisted);
@@ -2,16 +2,18 @@ import java.util.ArrayList;
 //customer class
 public class Customer {
     public String id;
+    public int num; //dense number from Main.customerIds
     public int totalSpent;
     public String loyaltyTier;
-    public HashTable<Freelancer> blacklisted;
+    public IntSet blacklisted; //freelancer numbers
     public int employCount;
     public int loyaltyPoints;
-    Customer(String id) {
+    Customer(String id, int num) {
         this.id = id;
+        this.num = num;
         totalSpent = 0;
         loyaltyTier = "BRONZE";
-        blacklisted = new HashTable<>(11);
+        blacklisted = new IntSet();
         employCount = 0;
         loyaltyPoints = 0;
     }
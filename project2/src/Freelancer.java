@@ -1,6 +1,7 @@
 //freelancer class
 public class Freelancer {
     public String id;
+    public int num; //dense number from Main.freelancerIds, in the lexicographic order of the ids
     public int price;
     public double rating;
     public int ratingCount;
@@ -12,10 +13,12 @@ public class Freelancer {
     public boolean isWorking;
     public int completedLastMonth;
     public int cancelledLastMonth;
-    public String currentCustomerID;
+    public int currentCustomer = -1; //customer number while working
+    public int registration; //registration counter, see Main.legacyOrder
     public boolean isBurnout;
-    Freelancer(String id,String service,int price,int T,int C,int R, int E, int A) {
+    Freelancer(String id,int num,String service,int price,int T,int C,int R, int E, int A) {
         this.id = id;
+        this.num = num;
         this.service = service;
         this.price = price;
         this.completed = 0;
@@ -0,0 +1,267 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmark of HashTable (open addressing) against the LinkedList-bucket
+ * table it replaced, kept below as ChainedHashTable. Keys look like the
+ * freelancer/customer IDs Main sees.
+ *
+ * Usage: java HashTableBenchmark [--bench put,get,miss,remove,latency] [--sizes 1e3,1e4,...]
+ *                                [--table open,full,chained] [--warmup N] [--iterations N] [--millis M]
+ *
+ * Tables: open is HashTable with incremental rehashing, full is HashTable
+ * resizing in one step, chained is the old table.
+ *
+ * Benchmarks (only the named calls are timed):
+ *   put     fills an empty table (2^17 slots, like Main's) with size keys (resizes included)
+ *   get     get() of random keys of a full table
+ *   miss    containsKey() of keys that are not in the table (the blacklist case)
+ *   remove  remove() of random keys, put back outside the timer
+ *   latency times every put() of a fill on its own and reports the worst one
+ *           and the 99.9th percentile (one fill per iteration). Give it a young
+ *           generation that holds a whole fill (e.g. -Xmn2g for 4e6), otherwise
+ *           the worst put is a GC pause rather than a resize
+ * Sizes up to 1e6 fit the default heap; 1e7 needs about -Xmx4g and 1e8 about
+ * -Xmx40g (the key strings dominate).
+ */
+public class HashTableBenchmark {
+    private static final int BATCH = 1024;
+
+    //the two tables behind one interface, so both runs pay the same call overhead
+    private interface Table {
+        void put(String key, Integer value);
+        Integer get(String key);
+        boolean containsKey(String key);
+        void remove(String key);
+    }
+
+    private static Table newTable(String kind) {
+        if (kind.equals("chained")) {
+            ChainedHashTable<Integer> t = new ChainedHashTable<>();
+            return new Table() {
+                public void put(String key, Integer value) { t.put(key, value); }
+                public Integer get(String key) { return t.get(key); }
+                public boolean containsKey(String key) { return t.containsKey(key); }
+                public void remove(String key) { t.remove(key); }
+            };
+        }
+        //sized like Main's customerTable/freeTable
+        HashTable<Integer> t = kind.equals("full") ? new HashTable<>(1 << 17, false) : new HashTable<>(1 << 17, true);
+        return new Table() {
+            public void put(String key, Integer value) { t.put(key, value); }
+            public Integer get(String key) { return t.get(key); }
+            public boolean containsKey(String key) { return t.containsKey(key); }
+            public void remove(String key) { t.remove(key); }
+        };
+    }
+
+    public static void main(String[] args) {
+        String[] benchmarks = {"put", "get", "miss", "remove", "latency"};
+        String[] tables = {"open", "full", "chained"};
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+        int warmup = 3, iterations = 5, millis = 500;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--bench") && i + 1 < args.length) benchmarks = args[++i].split(",");
+            else if (args[i].equals("--table") && i + 1 < args.length) tables = args[++i].split(",");
+            else if (args[i].equals("--sizes") && i + 1 < args.length) sizes = parseSizes(args[++i]);
+            else if (args[i].equals("--warmup") && i + 1 < args.length) warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--iterations") && i + 1 < args.length) iterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--millis") && i + 1 < args.length) millis = Integer.parseInt(args[++i]);
+        }
+
+        System.out.printf("%-8s %-8s %10s %14s %14s%n", "bench", "table", "size", "ops/s", "(min-max)");
+        for (int size : sizes) {
+            String[] keys = new String[size];
+            for (int i = 0; i < size; i++) keys[i] = "freelancer" + i;
+            String[] absent = new String[BATCH];
+            for (int i = 0; i < BATCH; i++) absent[i] = "customer" + i;
+            for (String bench : benchmarks) {
+                for (String kind : tables) {
+                    if (bench.equals("latency")) {
+                        latency(kind, keys, warmup, iterations);
+                        continue;
+                    }
+                    Workload w = new Workload(bench, kind, keys, absent);
+                    for (int i = 0; i < warmup; i++) w.iteration(millis);
+                    double sum = 0, min = Double.MAX_VALUE, max = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        double rate = w.iteration(millis);
+                        sum += rate;
+                        min = Math.min(min, rate);
+                        max = Math.max(max, rate);
+                    }
+                    System.out.printf("%-8s %-8s %10d %14.0f %6.0fk-%5.0fk%n",
+                            bench, kind, size, sum / iterations, min / 1000, max / 1000);
+                }
+            }
+        }
+    }
+
+    //worst and 99.9th percentile single put() over fills of an empty table: the resize pauses
+    private static void latency(String kind, String[] keys, int warmup, int iterations) {
+        long[] nanos = new long[keys.length];
+        long worst = 0, p999 = 0;
+        for (int it = 0; it < warmup + iterations; it++) {
+            System.gc(); //starts every fill from a collected heap
+            Table t = newTable(kind);
+            for (int i = 0; i < keys.length; i++) {
+                long start = System.nanoTime();
+                t.put(keys[i], i);
+                nanos[i] = System.nanoTime() - start;
+            }
+            if (it < warmup) continue;
+            long max = 0;
+            for (long n : nanos) max = Math.max(max, n);
+            worst = Math.max(worst, max);
+            Arrays.sort(nanos);
+            p999 = Math.max(p999, nanos[(int) (keys.length * 0.999)]);
+        }
+        System.out.printf("%-8s %-8s %10d   max %.3f ms, 99.9%% %.2f us%n",
+                "latency", kind, keys.length, worst / 1e6, p999 / 1e3);
+    }
+
+    private static int[] parseSizes(String list) {
+        String[] parts = list.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) sizes[i] = (int) Double.parseDouble(parts[i]); //accepts 1e6
+        return sizes;
+    }
+
+    private static class Workload {
+        final String bench, kind;
+        final String[] keys, absent;
+        final SplittableRandom random = new SplittableRandom(250);
+        final String[] batch = new String[BATCH];
+        Table table;
+        long sink; //keeps the results of get/containsKey alive
+
+        Workload(String bench, String kind, String[] keys, String[] absent) {
+            this.bench = bench;
+            this.kind = kind;
+            this.keys = keys;
+            this.absent = absent;
+            if (!bench.equals("put")) table = fill();
+        }
+
+        Table fill() {
+            Table t = newTable(kind);
+            for (int i = 0; i < keys.length; i++) t.put(keys[i], i);
+            return t;
+        }
+
+        //runs batches for about millis ms of timed work, returns ops/sec of the timed sections
+        double iteration(int millis) {
+            long budget = millis * 1_000_000L;
+            long timed = 0, ops = 0;
+            while (timed < budget) {
+                if (bench.equals("put")) {
+                    table = null; //lets the previous table go before the clock starts
+                    long start = System.nanoTime();
+                    table = fill();
+                    timed += System.nanoTime() - start;
+                    ops += keys.length;
+                    continue;
+                }
+                for (int i = 0; i < BATCH; i++) {
+                    batch[i] = bench.equals("miss") ? absent[i] : keys[random.nextInt(keys.length)];
+                }
+                long start = System.nanoTime();
+                switch (bench) {
+                    case "get":
+                        for (int i = 0; i < BATCH; i++) {
+                            Integer v = table.get(batch[i]);
+                            if (v != null) sink += v;
+                        }
+                        break;
+                    case "miss":
+                        for (int i = 0; i < BATCH; i++) if (table.containsKey(batch[i])) sink++;
+                        break;
+                    case "remove":
+                        for (int i = 0; i < BATCH; i++) table.remove(batch[i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown benchmark: " + bench);
+                }
+                timed += System.nanoTime() - start;
+                ops += BATCH;
+                if (bench.equals("remove")) {
+                    for (int i = 0; i < BATCH; i++) table.put(batch[i], i);
+                }
+            }
+            return ops / (timed / 1e9);
+        }
+    }
+
+    //the LinkedList-bucket HashTable as it was before open addressing, kept as the baseline
+    @SuppressWarnings("unchecked")
+    private static class ChainedHashTable<V> {
+        private static final int DEFAULT_CAPACITY = 103123; // A large prime number
+        private static final double LOAD_FACTOR_THRESHOLD = 0.75;
+        private LinkedList<Entry>[] table;
+        public int size;
+        private int capacity;
+        private class Entry {
+            String key;
+            V value;
+            Entry(String key, V value) {
+                this.key = key;
+                this.value = value;
+            }
+        }
+        ChainedHashTable() {
+            this.capacity = DEFAULT_CAPACITY;
+            this.table = (LinkedList<Entry>[]) new LinkedList<?>[capacity];
+        }
+        private int hash(String key) {
+            return Math.abs(key.hashCode()) % capacity;
+        }
+        void put(String key, V value) {
+            int index = hash(key);
+            if (table[index] == null) table[index] = new LinkedList<>();
+            for (Entry entry : table[index]) {
+                if (entry.key.equals(key)) {
+                    entry.value = value;
+                    return;
+                }
+            }
+            table[index].add(new Entry(key, value));
+            size++;
+            if ((double) size / capacity > LOAD_FACTOR_THRESHOLD) resize();
+        }
+        V get(String key) {
+            int index = hash(key);
+            if (table[index] == null) return null;
+            for (Entry entry : table[index]) {
+                if (entry.key.equals(key)) return entry.value;
+            }
+            return null;
+        }
+        private void resize() {
+            capacity = capacity * 2;
+            LinkedList<Entry>[] oldTable = table;
+            table = (LinkedList<Entry>[]) new LinkedList<?>[capacity];
+            size = 0;
+            for (LinkedList<Entry> bucket : oldTable) {
+                if (bucket != null) {
+                    for (Entry entry : bucket) put(entry.key, entry.value);
+                }
+            }
+        }
+        void remove(String key) {
+            int index = hash(key);
+            if (table[index] == null) return;
+            LinkedList<Entry> bucket = table[index];
+            for (int i = 0; i < bucket.size(); i++) {
+                if (bucket.get(i).key.equals(key)) {
+                    bucket.remove(i);
+                    size--;
+                    return;
+                }
+            }
+        }
+        boolean containsKey(String key) {
+            return get(key) != null;
+        }
+    }
+}
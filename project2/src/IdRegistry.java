@@ -0,0 +1,71 @@
+/**
+ * Interns the String IDs of one kind of user (freelancers or customers) as dense ints
+ * 0, 1, 2, ..., so the engine can keep per-user state in arrays and compare users by
+ * int. The input's ID is hashed once per command, everything after that works on the
+ * number. A new registry numbers IDs at registration; sorted() fixes the numbers up
+ * front in lexicographic order, so that comparing two numbers compares the two IDs.
+ * An ID keeps its number after its user is removed (a banned freelancer who registers
+ * again gets it back).
+ */
+public class IdRegistry<T> {
+    private final HashTable<Integer> numbers;
+    private String[] names;
+    private Object[] users;
+    private int count;
+    private final boolean fixed; //numbers come from sorted(), no new IDs
+
+    public IdRegistry() {
+        this.numbers=new HashTable<>();
+        this.names=new String[16];
+        this.users=new Object[16];
+        this.fixed=false;
+    }
+
+    private IdRegistry(String[] sortedIds) {
+        this.numbers=new HashTable<>(2*sortedIds.length);
+        this.names=sortedIds;
+        this.users=new Object[sortedIds.length];
+        this.count=sortedIds.length;
+        this.fixed=true;
+        for (int i=0; i<sortedIds.length; i++) {
+            numbers.put(sortedIds[i], i);
+        }
+    }
+
+    //numbers follow the order of sortedIds, which must be sorted and free of duplicates
+    public static <T> IdRegistry<T> sorted(String[] sortedIds) {
+        return new IdRegistry<>(sortedIds);
+    }
+
+    //the number of id, handing out the next one if id is new
+    public int intern(String id) {
+        Integer num=numbers.get(id);
+        if (num!=null) return num;
+        if (fixed) throw new IllegalArgumentException("ID missing from the precomputed order: "+id);
+        if (count==names.length) {
+            String[] biggerNames=new String[count*2];
+            Object[] biggerUsers=new Object[count*2];
+            System.arraycopy(names, 0, biggerNames, 0, count);
+            System.arraycopy(users, 0, biggerUsers, 0, count);
+            names=biggerNames;
+            users=biggerUsers;
+        }
+        names[count]=id;
+        numbers.put(id, count);
+        return count++;
+    }
+
+    public String name(int num) {
+        return names[num];
+    }
+
+    //the user last registered under num
+    @SuppressWarnings("unchecked")
+    public T get(int num) {
+        return (T)users[num];
+    }
+
+    public void set(int num, T user) {
+        users[num]=user;
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Arrays;
+
+/**
+ * Set of non-negative ints (IdRegistry numbers) with the same layout as HashTable: one flat
+ * array, linear probing over a power-of-two capacity and backward-shift removal, but no
+ * String hashing, no equals() and no boxing. Used for the customers' blacklists.
+ */
+public class IntSet {
+    private static final int EMPTY = -1;
+    private int[] slots;
+    private int mask;
+    public int size;
+
+    public IntSet() {
+        slots=new int[8];
+        Arrays.fill(slots, EMPTY);
+        mask=slots.length-1;
+    }
+
+    //multiplicative mixing so that consecutive numbers spread over the table
+    private int home(int value) {
+        int h=value*0x9E3779B9;
+        return (h^(h>>>16))&mask;
+    }
+
+    //slot holding value, or the empty slot that ends its probe run
+    private int slot(int value) {
+        int i=home(value);
+        while (slots[i]!=EMPTY && slots[i]!=value) {
+            i=(i+1)&mask;
+        }
+        return i;
+    }
+
+    public boolean contains(int value) {
+        return size>0 && slots[slot(value)]==value;
+    }
+
+    public void add(int value) {
+        int i=slot(value);
+        if (slots[i]==value) return;
+        slots[i]=value;
+        size++;
+        if (2*size>slots.length) {
+            int[] old=slots;
+            slots=new int[old.length*2];
+            Arrays.fill(slots, EMPTY);
+            mask=slots.length-1;
+            for (int v : old) {
+                if (v!=EMPTY) slots[slot(v)]=v;
+            }
+        }
+    }
+
+    public void remove(int value) {
+        int gap=slot(value);
+        if (slots[gap]==EMPTY) return;
+        size--;
+        //backward shift, see HashTable.remove
+        for (int j=(gap+1)&mask; slots[j]!=EMPTY; j=(j+1)&mask) {
+            int h=home(slots[j]);
+            if (((j-h)&mask)>=((j-gap)&mask)) {
+                slots[gap]=slots[j];
+                gap=j;
+            }
+        }
+        slots[gap]=EMPTY;
+    }
+}
@@ -1,15 +1,22 @@
 import java.io.*;
 import java.util.Locale;
 import java.util.ArrayList;
+import java.util.Arrays;
 /**
  * Main entry point for GigMatch Pro platform.
  */
 public class Main {
-    //creating all the hashtables and avltrees
-    static HashTable<Customer> customerTable=new HashTable<Customer>();
-    static HashTable<Freelancer> freeTable=new HashTable<Freelancer>();
+    //creating all the hashtables and avltrees (the two user tables start large, every id goes through them)
+    static HashTable<Customer> customerTable=new HashTable<Customer>(1 << 17);
+    static HashTable<Freelancer> freeTable=new HashTable<Freelancer>(1 << 17);
+    //dense int ids: freelancers are numbered up front in id order (see scanFreelancerIds), customers at registration
+    static IdRegistry<Freelancer> freelancerIds;
+    static IdRegistry<Customer> customerIds=new IdRegistry<>();
     static ArrayList<Trio> serviceChanges=new ArrayList<>();
     static ArrayList<Freelancer> burnouts=new ArrayList<>();
+    //bucket count and insertion counter of the chained table freeTable used to be, see legacyOrder
+    static int legacyBuckets=103123;
+    static int registrations=0;
     static AvlTree paint = new AvlTree();
     static AvlTree webdev = new AvlTree();
     static AvlTree graphic = new AvlTree();
@@ -33,8 +40,9 @@ public class Main {
         String outputFile = args[1];
 
         try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-             BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+             AsyncFileWriter writer = AsyncFileWriter.open(outputFile)) { //writer thread, see AsyncFileWriter
 
+            freelancerIds=IdRegistry.sorted(scanFreelancerIds(inputFile));
             String line;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
@@ -51,7 +59,7 @@ public class Main {
         }
     }
 
-    private static void processCommand(String command, BufferedWriter writer)
+    private static void processCommand(String command, AsyncFileWriter writer)
             throws IOException {
 
         String[] parts = command.split("\\s+");
@@ -70,7 +78,8 @@ public class Main {
             switch (operation) {
                 case "register_customer":
                     // Format: register_customer customerID
-                    customer = new Customer(parts[1]);
+                    customer = new Customer(parts[1],customerIds.intern(parts[1]));
+                    customerIds.set(customer.num,customer);
                     if (customerTable.containsKey(parts[1])||freeTable.containsKey(parts[1])) {
                         result="Some error occurred in register_customer.";
                     }
@@ -98,9 +107,14 @@ public class Main {
                         result="Some error occurred in register_freelancer.";
                         break;
                     }
-                    freelancer=new Freelancer(parts[1],parts[2],price,T,C,R,E,A);
+                    freelancer=new Freelancer(parts[1],freelancerIds.intern(parts[1]),parts[2],price,T,C,R,E,A);
+                    freelancerIds.set(freelancer.num,freelancer);
                     freelancer.updateCompScore();
                     freeTable.put(parts[1],freelancer);
+                    freelancer.registration=registrations++;
+                    if ((double)freeTable.size/legacyBuckets>0.75) {
+                        legacyBuckets*=2;
+                    }
                     //inserts freelancer into their respective tree
                     tree=getServiceTree(parts[2]);
                     tree.root=tree.insert(tree.root,freelancer);
@@ -142,7 +156,7 @@ public class Main {
                     Freelancer winner=lancers.get(0);
                     result+="\nauto-employed best freelancer: "+ winner.id+" for customer "+customer.id;
                     winner.isWorking=true;
-                    winner.currentCustomerID=customer.id;
+                    winner.currentCustomer=customer.num;
                     tree.root=tree.delete(tree.root,winner);
                     customer.employCount+=1;
                     break;
@@ -155,12 +169,12 @@ public class Main {
                     }
                     freelancer=freeTable.get(parts[2]);
                     customer=customerTable.get(parts[1]);
-                    if (customer.blacklisted.containsKey(freelancer.id)||freelancer.isWorking) {
+                    if (customer.blacklisted.contains(freelancer.num)||freelancer.isWorking) {
                         result="Some error occurred in employ.";
                         break;
                     }
                     freelancer.isWorking=true;
-                    freelancer.currentCustomerID=customer.id;
+                    freelancer.currentCustomer=customer.num;
                     tree=getServiceTree(freelancer.service);
                     tree.root=tree.delete(tree.root,freelancer);
                     customer.employCount+=1;
@@ -192,8 +206,8 @@ public class Main {
                     freelancer.updateCompScore();
                     tree=getServiceTree(freelancer.service);
                     tree.root=tree.insert(tree.root,freelancer);
-                    result= freelancer.id+" completed job for "+ freelancer.currentCustomerID +" with rating "+rating;
-                    customer=customerTable.get(freelancer.currentCustomerID);
+                    customer=customerIds.get(freelancer.currentCustomer);
+                    result= freelancer.id+" completed job for "+ customer.id +" with rating "+rating;
                     //adds to the total spent of the customer according to the loyalty tiers
                     switch (customer.loyaltyTier) {
                         case "BRONZE":
@@ -215,7 +229,7 @@ public class Main {
                     }
 
 
-                    freelancer.currentCustomerID=null;
+                    freelancer.currentCustomer=-1;
 
                     break;
 
@@ -232,7 +246,7 @@ public class Main {
                     }
                     freelancer.isWorking=false;
                     freelancer.cancelled+=1;
-                    result="cancelled by freelancer: "+ freelancer.id+" cancelled "+freelancer.currentCustomerID;
+                    result="cancelled by freelancer: "+ freelancer.id+" cancelled "+customerIds.name(freelancer.currentCustomer);
                     freelancer.cancelledLastMonth+=1;
                     //blacklists the freelancer
                     if (freelancer.cancelledLastMonth>=5) {
@@ -258,7 +272,7 @@ public class Main {
                     }
                     customer=customerTable.get(parts[1]);
                     freelancer=freeTable.get(parts[2]);
-                    if (!freelancer.isWorking || !freelancer.currentCustomerID.equals(customer.id)) {
+                    if (!freelancer.isWorking || freelancer.currentCustomer!=customer.num) {
                         result="Some error occurred in cancel_by_customer.";
                         break;
                     }
@@ -278,11 +292,11 @@ public class Main {
                     }
                     customer=customerTable.get(parts[1]);
                     freelancer=freeTable.get(parts[2]);
-                    if (customer.blacklisted.containsKey(freelancer.id)) {
+                    if (customer.blacklisted.contains(freelancer.num)) {
                         result="Some error occurred in blacklist.";
                         break;
                     }
-                    customer.blacklisted.put(freelancer.id,freelancer);
+                    customer.blacklisted.add(freelancer.num);
                     result=customer.id+" blacklisted "+freelancer.id;
                     break;
 
@@ -294,11 +308,11 @@ public class Main {
                     }
                     customer=customerTable.get(parts[1]);
                     freelancer=freeTable.get(parts[2]);
-                    if (!customer.blacklisted.containsKey(freelancer.id)) {
+                    if (!customer.blacklisted.contains(freelancer.num)) {
                         result="Some error occurred in unblacklist.";
                         break;
                     }
-                    customer.blacklisted.remove(freelancer.id);
+                    customer.blacklisted.remove(freelancer.num);
                     result=customer.id+" unblacklisted "+freelancer.id;
                     break;
 
@@ -322,18 +336,23 @@ public class Main {
                 case "simulate_month":
                     // Format: simulate_month
                     //resets freelancer works last month
+                    ArrayList<Freelancer> recovered=new ArrayList<>();
                     for (Freelancer f: freeTable.values()) {
                         f.cancelledLastMonth=0;
-                        //removes burnout if applicable
                         if (f.isBurnout && f.completedLastMonth <= 2) {
-                            f.isBurnout = false;
-                            f.updateCompScore();
-                            tree=getServiceTree(f.service);
-                            tree.root=tree.delete(tree.root,f);
-                            tree.root=tree.insert(tree.root,f);
+                            recovered.add(f);
                         }
                         f.completedLastMonth =0;
                     }
+                    //removes burnout if applicable, in the order the tree updates always ran in
+                    recovered.sort(Main::legacyOrder);
+                    for (Freelancer f: recovered) {
+                        f.isBurnout = false;
+                        f.updateCompScore();
+                        tree=getServiceTree(f.service);
+                        tree.root=tree.delete(tree.root,f);
+                        tree.root=tree.insert(tree.root,f);
+                    }
                     //applies burnouts
                     for (Freelancer f: burnouts) {
                         f.isBurnout=true;
@@ -437,6 +456,64 @@ public class Main {
         }
     }
 
+    /**
+     * Order in which the LinkedList-bucket freeTable listed freelancers: by bucket
+     * (hash modulo its bucket count, which doubled past a 0.75 load), then by
+     * insertion. The burnout recovery in simulate_month rescores a freelancer before
+     * deleting it from its tree, so the resulting tree depends on this order.
+     */
+    static int legacyOrder(Freelancer f1, Freelancer f2) {
+        int b1=Math.abs(f1.id.hashCode())%legacyBuckets;
+        int b2=Math.abs(f2.id.hashCode())%legacyBuckets;
+        if (b1!=b2) return Integer.compare(b1,b2);
+        return Integer.compare(f1.registration,f2.registration);
+    }
+
+    /**
+     * Collects the ids of every register_freelancer command in the input, sorted and
+     * without duplicates, so that freelancer numbers follow the id order used to break
+     * composite score ties in the service trees.
+     *
+     * @param inputFile The command file, read once before the commands run.
+     * @return The distinct freelancer ids in String.compareTo order.
+     */
+    static String[] scanFreelancerIds(String inputFile) throws IOException {
+        ArrayList<String> ids=new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                //the second token of a register_freelancer line, cut out by hand: split() on every line costs more than the rest of the scan
+                line = line.trim();
+                int start = "register_freelancer".length();
+                if (!line.startsWith("register_freelancer") || start == line.length() || !isSpace(line.charAt(start))) {
+                    continue;
+                }
+                while (isSpace(line.charAt(start))) {
+                    start++; //trim() left a non-space at the end
+                }
+                int end = start;
+                while (end < line.length() && !isSpace(line.charAt(end))) {
+                    end++;
+                }
+                ids.add(line.substring(start, end));
+            }
+        }
+        String[] sorted=ids.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int distinct=0;
+        for (int i=0; i<sorted.length; i++) {
+            if (distinct==0 || !sorted[i].equals(sorted[distinct-1])) {
+                sorted[distinct++]=sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    //the characters of the \s used to split commands
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     /**
      * Updates a freelancer's skills after a job is completed with a high rating.
      * Implements the "Skill Gains Following Job Completion" logic (PDF Section 4.1).
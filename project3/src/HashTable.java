@@ -1,111 +1,209 @@
-import java.util.LinkedList;
 import java.util.ArrayList;
+//open addressing with linear probing: keys, values and the keys' mixed hashes sit in flat
+//arrays, the slot is hash & mask (capacity is a power of two), and remove() shifts the rest
+//of the probe run back instead of leaving tombstones
+//growing is incremental by default (like Redis dict rehashing): the old arrays stay readable
+//while every operation moves the next REHASH_STEP of their slots into the doubled table, so no
+//single put pays for a whole rehash. -Dhashtable.rehash=full switches back to one-step resizes
 public class HashTable <V>{
-    private static final int DEFAULT_CAPACITY = 11;
-    private static final double LOAD_FACTOR_THRESHOLD = 0.75;
-    private LinkedList<Entry>[] table;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double LOAD_FACTOR_THRESHOLD = 0.5; // Linear probing: keeps probe runs short
+    private static final int REHASH_STEP = 128; // Old slots migrated per operation
+    private static final boolean INCREMENTAL = !"full".equals(System.getProperty("hashtable.rehash"));
+    private static final Object REMOVED = new Object(); // Old-table value of an entry that is gone
+    private String[] keys; // null marks an empty slot
+    private Object[] values;
+    private int[] hashes; // cached hash(key), so probes and resizes skip most equals() calls
     public int size;
     private int capacity;
-    private class Entry{
-        String key;
-        V value;
-        Entry(String key, V value){
-            this.key=key;
-            this.value=value;
-        }
-    }
+    private int mask;
+    private int threshold;
+    private final boolean incremental;
+    //the arrays being migrated (null when not growing), slots below rehashIndex are already moved.
+    //old slots are never shifted so their probe runs stay intact: an entry removed before its
+    //slot is reached keeps its key and gets the value REMOVED
+    private String[] oldKeys;
+    private Object[] oldValues;
+    private int[] oldHashes;
+    private int rehashIndex;
     public HashTable() {
-        this.capacity=DEFAULT_CAPACITY;
-        this.size=0;
-        this.table=new LinkedList[this.capacity];
+        this(DEFAULT_CAPACITY, INCREMENTAL);
     }
     public HashTable(int capacity) {
-        this.capacity=capacity;
+        this(capacity, INCREMENTAL);
+    }
+    public HashTable(int capacity, boolean incremental) {
+        //rounded up to a power of two
+        this.capacity=Math.max(2, Integer.highestOneBit(Math.max(1, capacity-1))<<1);
         this.size=0;
-        this.table=new LinkedList[this.capacity];
+        this.incremental=incremental;
+        allocate();
     }
-    private int hash(String key){
-        return Math.abs(key.hashCode())%capacity;
+    private void allocate(){
+        this.keys=new String[capacity];
+        this.values=new Object[capacity];
+        this.hashes=new int[capacity];
+        this.mask=capacity-1;
+        this.threshold=(int)(capacity*LOAD_FACTOR_THRESHOLD);
     }
-    public void put(String key, V value){
-        int index = hash(key);
-        if (table[index]==null){
-            table[index]=new LinkedList<>();
+    //spreads String.hashCode() so that the low bits used by the mask depend on all of it
+    private static int hash(String key){
+        int h=key.hashCode()*0x9E3779B9;
+        return h^(h>>>16);
+    }
+    //slot holding key, or the empty slot that ends its probe run
+    private int slot(String key, int h){
+        int i=h&mask;
+        String k;
+        while ((k=keys[i])!=null && (hashes[i]!=h || !k.equals(key))){
+            i=(i+1)&mask;
+        }
+        return i;
+    }
+    //old slot holding a live, not yet migrated entry for key, or -1
+    private int oldSlot(String key, int h){
+        int oldMask=oldKeys.length-1;
+        for (int i=h&oldMask; oldKeys[i]!=null; i=(i+1)&oldMask){
+            if (oldHashes[i]==h && oldKeys[i].equals(key)){
+                return (i>=rehashIndex && oldValues[i]!=REMOVED) ? i : -1;
+            }
         }
+        return -1;
+    }
+    //adds an entry whose key is known to be absent
+    private void place(String key, Object value, int h){
+        int i=h&mask;
+        while (keys[i]!=null){
+            i=(i+1)&mask;
+        }
+        keys[i]=key;
+        values[i]=value;
+        hashes[i]=h;
+    }
+    //moves the next REHASH_STEP old slots, dropping the old arrays after the last one
+    private void rehashStep(){
+        int end=Math.min(oldKeys.length, rehashIndex+REHASH_STEP);
+        for (int j=rehashIndex; j<end; j++){
+            if (oldKeys[j]!=null && oldValues[j]!=REMOVED){
+                place(oldKeys[j], oldValues[j], oldHashes[j]);
+            }
+        }
+        rehashIndex=end;
+        if (end==oldKeys.length){
+            oldKeys=null;
+            oldValues=null;
+            oldHashes=null;
+        }
+    }
+    public void put(String key, V value){
+        int h=hash(key);
+        if (oldKeys!=null) rehashStep();
+        int i=slot(key, h);
         //update value if key already exists
-        for (Entry entry : table[index]){
-            if (entry.key.equals(key)){
-                entry.value=value;
+        if (keys[i]!=null){
+            values[i]=value;
+            return;
+        }
+        if (oldKeys!=null){
+            int j=oldSlot(key, h);
+            if (j>=0){
+                oldValues[j]=value; //moves over with its slot
                 return;
             }
         }
-        table[index].add(new Entry(key, value));
+        keys[i]=key;
+        values[i]=value;
+        hashes[i]=h;
         size++;
-        if ((double)size/capacity>LOAD_FACTOR_THRESHOLD){
+        if (size>threshold){
             resize();
         }
     }
+    @SuppressWarnings("unchecked")
     public V get(String key){
-        int index = hash(key);
-        if (table[index]==null){
-            return null;
-        }
-        for (Entry entry : table[index]){
-            if (entry.key.equals(key)){
-                return entry.value;
-            }
+        int h=hash(key);
+        if (oldKeys!=null) rehashStep();
+        int i=slot(key, h);
+        if (keys[i]!=null) return (V)values[i];
+        if (oldKeys!=null){
+            int j=oldSlot(key, h);
+            if (j>=0) return (V)oldValues[j];
         }
         return null;
     }
-    //doubles the size oof the table and rehashes all entries
+    //doubles the size of the table. Full mode moves every entry by its cached hash right away
+    //(keys are distinct, no equals needed), incremental mode leaves that to the following operations
     private void resize(){
+        while (oldKeys!=null){
+            rehashStep(); //a previous migration is still running: finish it first
+        }
+        String[] previousKeys=keys;
+        Object[] previousValues=values;
+        int[] previousHashes=hashes;
         capacity=capacity*2;
-        LinkedList<Entry>[] oldTable = table;
-        table=new LinkedList[capacity];
-        size=0;
-        for (LinkedList<Entry> bucket : oldTable){
-            if (bucket!=null){
-                for (Entry entry : bucket){
-                    put(entry.key, entry.value);
-                }
+        allocate();
+        if (incremental){
+            oldKeys=previousKeys;
+            oldValues=previousValues;
+            oldHashes=previousHashes;
+            rehashIndex=0;
+            return;
+        }
+        for (int j=0; j<previousKeys.length; j++){
+            if (previousKeys[j]!=null){
+                place(previousKeys[j], previousValues[j], previousHashes[j]);
             }
         }
     }
     public void remove(String key) {
-        int index = hash(key);
-        if (table[index] == null) {
+        int h=hash(key);
+        if (oldKeys!=null) rehashStep();
+        int gap=slot(key, h);
+        if (keys[gap]==null) {
+            if (oldKeys!=null){
+                int j=oldSlot(key, h);
+                if (j>=0){
+                    oldValues[j]=REMOVED;
+                    size--;
+                }
+            }
             return;
         }
-        LinkedList<Entry> bucket = table[index];
-        for (int i = 0; i < bucket.size(); i++) {
-            if (bucket.get(i).key.equals(key)) {
-                bucket.remove(i);
-                size--;
-                return;
+        size--;
+        //backward shift: pull later entries of the run into the gap unless that would put them before their home slot
+        for (int j=(gap+1)&mask; keys[j]!=null; j=(j+1)&mask) {
+            int home=hashes[j]&mask;
+            if (((j-home)&mask)>=((j-gap)&mask)) {
+                keys[gap]=keys[j];
+                values[gap]=values[j];
+                hashes[gap]=hashes[j];
+                gap=j;
             }
         }
+        keys[gap]=null;
+        values[gap]=null;
     }
+    @SuppressWarnings("unchecked")
     public ArrayList<V> values(){
-        ArrayList<V> values = new ArrayList<>();
-        for (LinkedList<Entry> bucket : table){
-            if (bucket!=null){
-                for (Entry entry : bucket){
-                    values.add(entry.value);
+        ArrayList<V> result = new ArrayList<>(size);
+        for (int i=0; i<capacity; i++){
+            if (keys[i]!=null){
+                result.add((V)values[i]);
+            }
+        }
+        if (oldKeys!=null){
+            for (int j=rehashIndex; j<oldKeys.length; j++){
+                if (oldKeys[j]!=null && oldValues[j]!=REMOVED){
+                    result.add((V)oldValues[j]);
                 }
             }
         }
-        return values;
+        return result;
     }
     public boolean containsKey(String key) {
-        int index = hash(key);
-        if (table[index] == null) {
-            return false;
-        }
-        for (Entry entry : table[index]) {
-            if (entry.key.equals(key)) {
-                return true;
-            }
-        }
-        return false;
+        int h=hash(key);
+        if (oldKeys!=null) rehashStep();
+        if (keys[slot(key, h)]!=null) return true;
+        return oldKeys!=null && oldSlot(key, h)>=0;
     }
 }
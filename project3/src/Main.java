@@ -17,7 +17,7 @@ public class Main {
 
 
         try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-             BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+             AsyncFileWriter writer = AsyncFileWriter.open(outputFile)) { //writer thread, see AsyncFileWriter
 
             String line;
             while ((line = reader.readLine()) != null) {
@@ -35,7 +35,7 @@ public class Main {
         }
     }
 
-    private static void processCommand(String command, BufferedWriter writer)
+    private static void processCommand(String command, AsyncFileWriter writer)
             throws IOException {
 
         String[] parts = command.split("\\s+");